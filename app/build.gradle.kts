@@ -1,7 +1,21 @@
+import java.util.Properties
+
 plugins {
     id("com.android.application")
 }
 
+// Strava's client secret stays out of the repo: put strava.clientSecret in local.properties, which
+// is not committed, or set STRAVA_CLIENT_SECRET in the environment, e.g. on CI
+val localProperties = Properties().apply {
+    val file = rootProject.file("local.properties")
+    if (file.isFile) {
+        file.inputStream().use { load(it) }
+    }
+}
+val stravaClientSecret: String = localProperties.getProperty("strava.clientSecret")
+    ?: System.getenv("STRAVA_CLIENT_SECRET")
+    ?: ""
+
 android {
     namespace = "com.example.smartmarathonrunningapp"
     compileSdk = 34
@@ -15,6 +29,12 @@ android {
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
         multiDexEnabled = true // Enable multidex
+
+        buildConfigField("String", "STRAVA_CLIENT_SECRET", "\"$stravaClientSecret\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -34,8 +54,11 @@ dependencies {
     implementation("com.google.android.material:material:1.12.0")
     implementation("androidx.constraintlayout:constraintlayout:2.2.0")
     testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:3.14.9")
     androidTestImplementation("androidx.test.ext:junit:1.2.1")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.6.1")
+    androidTestImplementation("androidx.work:work-testing:2.9.1")
+    androidTestImplementation("com.squareup.okhttp3:mockwebserver:3.14.9")
 
     implementation("com.squareup.retrofit2:retrofit:2.9.0")
     implementation("com.squareup.retrofit2:converter-gson:2.9.0")
@@ -49,6 +72,9 @@ dependencies {
     implementation("androidx.lifecycle:lifecycle-process:2.6.2")
     implementation("androidx.startup:startup-runtime:1.1.1")
 
+    // Background sync
+    implementation("androidx.work:work-runtime:2.9.1")
+
     // Multidex support
     implementation("androidx.multidex:multidex:2.0.1")
 }
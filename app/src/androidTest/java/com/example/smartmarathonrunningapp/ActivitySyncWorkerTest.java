@@ -0,0 +1,159 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Configuration;
+import androidx.work.Data;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkerFactory;
+import androidx.work.WorkerParameters;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.TestListenableWorkerBuilder;
+import androidx.work.testing.WorkManagerTestInitHelper;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// The background sync against a local mock server, run through WorkManager's test driver
+@RunWith(AndroidJUnit4.class)
+public class ActivitySyncWorkerTest {
+    private static final String DATABASE_NAME = "activity-sync-test.db";
+
+    private Context context;
+    private MockWebServer server;
+    private SqliteActivityStore store;
+    private TokenManager tokenManager;
+    private StravaRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        store = new SqliteActivityStore(context, DATABASE_NAME);
+        server = new MockWebServer();
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+        tokenManager = new TokenManager(StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null)).api(),
+                new MemoryTokenStore(), "client", "secret", System::currentTimeMillis);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        store.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void newActivitiesAreSavedPageByPage() throws Exception {
+        server.enqueue(page(1, 200)); // A full page, so the worker asks for the next one
+        server.enqueue(page(201, 3));
+
+        ListenableWorker.Result result = TestListenableWorkerBuilder.from(context, ActivitySyncWorker.class)
+                .setWorkerFactory(new Factory())
+                .build()
+                .startWork()
+                .get();
+
+        assertEquals(ListenableWorker.Result.success(new Data.Builder()
+                .putInt(ActivitySyncWorker.KEY_SAVED, 203).build()), result);
+        assertEquals(203, store.count());
+        RecordedRequest first = server.takeRequest();
+        assertEquals("Bearer access", first.getHeader("Authorization"));
+        assertEquals("1", first.getRequestUrl().queryParameter("page"));
+        assertEquals("2", server.takeRequest().getRequestUrl().queryParameter("page"));
+    }
+
+    @Test
+    public void failedRunIsRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        ListenableWorker.Result result = TestListenableWorkerBuilder.from(context, ActivitySyncWorker.class)
+                .setWorkerFactory(new Factory())
+                .build()
+                .startWork()
+                .get();
+
+        assertEquals(ListenableWorker.Result.retry(), result);
+    }
+
+    @Test
+    public void duplicateRequestsCoalesceAndWaitForConstraints() throws Exception {
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .setWorkerFactory(new Factory())
+                .build());
+        server.enqueue(page(1, 5));
+
+        ActivitySyncWorker.syncNow(context);
+        ActivitySyncWorker.syncNow(context); // Joins the pending one
+        List<WorkInfo> pending = WorkManager.getInstance(context)
+                .getWorkInfosForUniqueWork(ActivitySyncWorker.ONE_TIME_WORK_NAME).get();
+        assertEquals(1, pending.size());
+        assertEquals(WorkInfo.State.ENQUEUED, pending.get(0).getState()); // No network or battery yet
+        assertEquals(0, server.getRequestCount());
+
+        TestDriver driver = WorkManagerTestInitHelper.getTestDriver(context);
+        driver.setAllConstraintsMet(pending.get(0).getId());
+
+        WorkInfo done = WorkManager.getInstance(context).getWorkInfoById(pending.get(0).getId()).get();
+        assertEquals(WorkInfo.State.SUCCEEDED, done.getState());
+        assertEquals(5, done.getOutputData().getInt(ActivitySyncWorker.KEY_SAVED, 0));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(5, store.count());
+    }
+
+    // Activities with ids [firstId, firstId + count), newest first
+    private static MockResponse page(int firstId, int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int id = firstId + count - 1; id >= firstId; id--) {
+            json.append(json.length() > 1 ? "," : "")
+                    .append("{\"id\":").append(id)
+                    .append(",\"name\":\"Run ").append(id)
+                    .append("\",\"distance\":5000.0,\"moving_time\":1500,\"elapsed_time\":1600,\"total_elevation_gain\":10.0")
+                    .append(",\"type\":\"Run\",\"start_date\":\"2024-01-01T06:00:00Z\",\"start_date_local\":\"2024-01-01T07:00:00Z\"}");
+        }
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(json.append(']').toString());
+    }
+
+    // Builds the worker on the mock server, the test database and a token that never expires
+    private class Factory extends WorkerFactory {
+        @Override
+        public ListenableWorker createWorker(@NonNull Context appContext, @NonNull String workerClassName,
+                                             @NonNull WorkerParameters params) {
+            return new ActivitySyncWorker(appContext, params, repository, store, tokenManager);
+        }
+    }
+
+    private static class MemoryTokenStore implements TokenStore {
+        private TokenResponse token = StravaJson.gson().fromJson(
+                "{\"access_token\":\"access\",\"refresh_token\":\"refresh\",\"expires_at\":4102444800}", TokenResponse.class);
+
+        @Override
+        public TokenResponse load() {
+            return token;
+        }
+
+        @Override
+        public void save(TokenResponse token) {
+            this.token = token;
+        }
+
+        @Override
+        public void clear() {
+            token = null;
+        }
+    }
+}
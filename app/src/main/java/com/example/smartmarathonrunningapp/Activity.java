@@ -1,6 +1,7 @@
 package com.example.smartmarathonrunningapp;
 
 public class Activity {
+    private long id; // Strava activity id
     private String name;
     private float distance;
     private int moving_time;
@@ -8,7 +9,20 @@ public class Activity {
     private float total_elevation_gain;
     private String type;
     private String start_date;
+    private String start_date_local; // Wall-clock start time, also written with a "Z" suffix by Strava
 
+    // Parsed from the date strings once and then reused; transient so Gson never reads or writes them
+    private transient long startEpochSeconds;
+    private transient int localDay; // Days since 1970-01-01 of the local start date
+    private transient boolean startParsed;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
 
     public void setName(String name) {
         this.name = name;
@@ -60,6 +74,45 @@ public class Activity {
 
     public void setStart_date(String start_date) {
         this.start_date = start_date;
+        startParsed = false;
+    }
+
+    public String getStart_date_local() {
+        return start_date_local;
+    }
+
+    public void setStart_date_local(String start_date_local) {
+        this.start_date_local = start_date_local;
+        startParsed = false;
+    }
+
+    // Start time in epoch seconds, parsed from start_date at most once
+    public long getStartEpochSeconds() {
+        parseStart();
+        return startEpochSeconds;
+    }
+
+    // Local calendar day of the start, as days since 1970-01-01; falls back to the UTC day
+    public int getLocalDay() {
+        parseStart();
+        return localDay;
+    }
+
+    // Sets the parsed values directly, e.g. from a database row that already stores them
+    void setStart(long startEpochSeconds, int localDay) {
+        this.startEpochSeconds = startEpochSeconds;
+        this.localDay = localDay;
+        startParsed = true;
+    }
+
+    // Parses the date strings at ingest so later queries never touch them again
+    void parseStart() {
+        if (startParsed || start_date == null) {
+            return;
+        }
+        startEpochSeconds = IsoDates.toEpochSeconds(start_date);
+        localDay = start_date_local != null ? IsoDates.epochDayOf(start_date_local) : (int) Math.floorDiv(startEpochSeconds, 86400L);
+        startParsed = true;
     }
 
     public String getName() {
@@ -0,0 +1,176 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Arrays;
+
+// Struct-of-arrays copy of the synced history for analytics: one primitive array per field,
+// oldest activity first. Rows are only ever appended; reads by index allocate nothing.
+public class ActivityColumns {
+    // Type codes stored in place of Strava's type string
+    public static final byte TYPE_OTHER = 0;
+    public static final byte TYPE_RUN = 1;
+    public static final byte TYPE_RIDE = 2;
+    public static final byte TYPE_WALK = 3;
+    public static final byte TYPE_HIKE = 4;
+    public static final byte TYPE_SWIM = 5;
+    public static final byte TYPE_VIRTUAL_RUN = 6;
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] ids;
+    private float[] distance; // Meters
+    private int[] movingTime; // Seconds
+    private int[] elapsedTime; // Seconds
+    private float[] totalElevationGain; // Meters
+    private long[] startEpochSeconds;
+    private int[] localDay; // Local start date as days since 1970-01-01
+    private byte[] type;
+    private int size;
+
+    public ActivityColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ActivityColumns(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new long[capacity];
+        distance = new float[capacity];
+        movingTime = new int[capacity];
+        elapsedTime = new int[capacity];
+        totalElevationGain = new float[capacity];
+        startEpochSeconds = new long[capacity];
+        localDay = new int[capacity];
+        type = new byte[capacity];
+    }
+
+    // Maps Strava's activity type string to a type code
+    public static byte typeCode(String stravaType) {
+        if (stravaType == null) {
+            return TYPE_OTHER;
+        }
+        switch (stravaType) {
+            case "Run":
+                return TYPE_RUN;
+            case "Ride":
+                return TYPE_RIDE;
+            case "Walk":
+                return TYPE_WALK;
+            case "Hike":
+                return TYPE_HIKE;
+            case "Swim":
+                return TYPE_SWIM;
+            case "VirtualRun":
+                return TYPE_VIRTUAL_RUN;
+            default:
+                return TYPE_OTHER;
+        }
+    }
+
+    // Runs on foot, indoors or out: the only types with running paces and efforts
+    public static boolean isRun(byte type) {
+        return type == TYPE_RUN || type == TYPE_VIRTUAL_RUN;
+    }
+
+    public void append(Activity activity) {
+        append(activity.getId(), activity.getDistance(), activity.getMoving_time(), activity.getElapsed_time(),
+                activity.getTotal_elevation_gain(), activity.getStartEpochSeconds(), activity.getLocalDay(),
+                typeCode(activity.getType()));
+    }
+
+    public void append(long id, float distanceMeters, int movingSeconds, int elapsedSeconds,
+                       float elevationGainMeters, long startEpoch, int startLocalDay, byte typeCode) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        distance[size] = distanceMeters;
+        movingTime[size] = movingSeconds;
+        elapsedTime[size] = elapsedSeconds;
+        totalElevationGain[size] = elevationGainMeters;
+        startEpochSeconds[size] = startEpoch;
+        localDay[size] = startLocalDay;
+        type[size] = typeCode;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int index) {
+        return ids[check(index)];
+    }
+
+    public float distance(int index) {
+        return distance[check(index)];
+    }
+
+    public int movingTime(int index) {
+        return movingTime[check(index)];
+    }
+
+    public int elapsedTime(int index) {
+        return elapsedTime[check(index)];
+    }
+
+    public float totalElevationGain(int index) {
+        return totalElevationGain[check(index)];
+    }
+
+    public long startEpochSeconds(int index) {
+        return startEpochSeconds[check(index)];
+    }
+
+    public int localDay(int index) {
+        return localDay[check(index)];
+    }
+
+    public byte type(int index) {
+        return type[check(index)];
+    }
+
+    // Total distance in meters of activities of one type
+    public double totalDistance(byte typeCode) {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            if (type[i] == typeCode) {
+                total += distance[i];
+            }
+        }
+        return total;
+    }
+
+    // Total moving time in seconds of activities of one type
+    public long totalMovingTime(byte typeCode) {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (type[i] == typeCode) {
+                total += movingTime[i];
+            }
+        }
+        return total;
+    }
+
+    // Bytes held by the arrays, capacity included
+    public long heapBytes() {
+        return (long) ids.length * (8 + 4 + 4 + 4 + 4 + 8 + 4 + 1);
+    }
+
+    private int check(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1) + 1;
+        ids = Arrays.copyOf(ids, capacity);
+        distance = Arrays.copyOf(distance, capacity);
+        movingTime = Arrays.copyOf(movingTime, capacity);
+        elapsedTime = Arrays.copyOf(elapsedTime, capacity);
+        totalElevationGain = Arrays.copyOf(totalElevationGain, capacity);
+        startEpochSeconds = Arrays.copyOf(startEpochSeconds, capacity);
+        localDay = Arrays.copyOf(localDay, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.smartmarathonrunningapp;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Formats distance, duration and pace into a reusable char buffer without boxing or temporary
+// strings, so list rows can be bound without garbage. Output matches the String.format patterns
+// used before ("%.2f km", "%d hr %d min", "%d min %d sec") in the same locale, including its
+// decimal separator and digits. Not thread-safe: keep one per thread or per ViewHolder.
+public final class ActivityFormatter {
+    private final char zeroDigit;
+    private final char decimalSeparator;
+    private char[] buffer = new char[48];
+    private int length;
+
+    // Uses the same locale String.format would
+    public ActivityFormatter() {
+        this(Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    public ActivityFormatter(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        zeroDigit = symbols.getZeroDigit();
+        decimalSeparator = symbols.getDecimalSeparator();
+    }
+
+    public ActivityFormatter clear() {
+        length = 0;
+        return this;
+    }
+
+    // "12.35 km"; meters are converted to kilometers as a float, as before
+    public ActivityFormatter appendDistance(float meters) {
+        appendFixed2(meters / 1000);
+        return append(" km");
+    }
+
+    // "1 hr 5 min" from an hour up, otherwise "5 min 3 sec"
+    public ActivityFormatter appendDuration(int seconds) {
+        int minutes = seconds / 60;
+        int hours = minutes / 60;
+        minutes %= 60;
+        seconds %= 60;
+        if (hours > 0) {
+            appendInt(hours).append(" hr ");
+            return appendInt(minutes).append(" min");
+        }
+        appendInt(minutes).append(" min ");
+        return appendInt(seconds).append(" sec");
+    }
+
+    // "5:16 /km", rounded to the second; "--:-- /km" without a distance
+    public ActivityFormatter appendPace(float meters, int movingSeconds) {
+        if (meters <= 0 || movingSeconds <= 0) {
+            return append("--:-- /km");
+        }
+        long secondsPerKm = Math.round(movingSeconds * 1000.0 / meters);
+        appendLong(secondsPerKm / 60).append(':');
+        appendDigit((int) (secondsPerKm % 60 / 10));
+        appendDigit((int) (secondsPerKm % 10));
+        return append(" /km");
+    }
+
+    public ActivityFormatter append(String text) {
+        int count = text.length();
+        ensureCapacity(length + count);
+        text.getChars(0, count, buffer, length);
+        length += count;
+        return this;
+    }
+
+    public ActivityFormatter append(char c) {
+        ensureCapacity(length + 1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    public ActivityFormatter appendInt(int value) {
+        return appendLong(value);
+    }
+
+    // Characters written so far are buffer()[0 .. length()); the array is reused by the next clear()
+    public char[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    // "%.2f": round half up on the decimal value, like Formatter does. A float widened to double
+    // has at most 24 significant bits, so value * 100 is exact and Math.round rounds it correctly.
+    private void appendFixed2(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            append(Double.isNaN(value) ? "NaN" : value > 0 ? "Infinity" : "-Infinity");
+            return;
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            append('-');
+            value = -value;
+        }
+        long hundredths = Math.round(value * 100);
+        appendLong(hundredths / 100).append(decimalSeparator);
+        appendDigit((int) (hundredths % 100 / 10));
+        appendDigit((int) (hundredths % 10));
+    }
+
+    // "%d": plain '-' sign, locale digits, no grouping. Only called with int-range values.
+    private ActivityFormatter appendLong(long value) {
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(length + digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) (zeroDigit + (int) (value % 10));
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private void appendDigit(int digit) {
+        append((char) (zeroDigit + digit));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Walks an athlete's whole activity history with up to N page requests in flight,
+// handing pages to the listener strictly in page order
+public class ActivityHistorySync {
+
+    // Receives the merged history one page at a time, in page order
+    public interface Listener {
+        void onPage(int page, List<Activity> activities);
+
+        void onComplete(int totalActivities);
+
+        void onError(Throwable t);
+    }
+
+    private final StravaApiService apiService;
+    private final RateLimitScheduler scheduler;
+    private final String authorization; // "Bearer ..." header value
+    private final int maxConcurrentPages;
+    private final Listener listener;
+
+    private final Map<Integer, Call<List<Activity>>> inFlight = new HashMap<>(); // Requests still on the wire
+    private final TreeMap<Integer, List<Activity>> buffered = new TreeMap<>(); // Pages that arrived out of order
+    private int nextPageToRequest = 1;
+    private int nextPageToEmit = 1;
+    private int lastPage = Integer.MAX_VALUE; // Unknown until the first short or empty page
+    private int totalActivities;
+    private boolean finished;
+
+    ActivityHistorySync(StravaApiService apiService, RateLimitScheduler scheduler, String authorization,
+                        int maxConcurrentPages, Listener listener) {
+        if (maxConcurrentPages < 1) {
+            throw new IllegalArgumentException("maxConcurrentPages must be at least 1");
+        }
+        this.apiService = apiService;
+        this.scheduler = scheduler;
+        this.authorization = authorization;
+        this.maxConcurrentPages = maxConcurrentPages;
+        this.listener = listener;
+    }
+
+    // Starts the first window of page requests
+    synchronized void start() {
+        fillWindow();
+    }
+
+    // Stops the sync and cancels every outstanding page request
+    public synchronized void cancel() {
+        if (!finished) {
+            finished = true;
+            cancelPagesAfter(0);
+        }
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    // Keeps up to maxConcurrentPages requests running until the end of the history is known
+    private void fillWindow() {
+        while (!finished && inFlight.size() < maxConcurrentPages && nextPageToRequest <= lastPage) {
+            final int page = nextPageToRequest++;
+            Call<List<Activity>> call = apiService.getUserActivities(authorization, page, StravaRepository.MAX_PER_PAGE);
+            inFlight.put(page, call);
+            // History pages are bulk work and wait behind anything the screen is asking for
+            scheduler.enqueue(call, RateLimitScheduler.Priority.BACKGROUND, new Callback<List<Activity>>() {
+                @Override
+                public void onResponse(@NonNull Call<List<Activity>> call, @NonNull Response<List<Activity>> response) {
+                    if (response.isSuccessful()) {
+                        List<Activity> body = response.body();
+                        onPageLoaded(page, body != null ? body : new ArrayList<>());
+                    } else {
+                        onPageFailed(page, new IllegalStateException("Page " + page + " failed: HTTP " + response.code()));
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<List<Activity>> call, @NonNull Throwable t) {
+                    onPageFailed(page, t);
+                }
+            });
+        }
+    }
+
+    private synchronized void onPageLoaded(int page, List<Activity> activities) {
+        inFlight.remove(page);
+        if (finished || page > lastPage) {
+            return; // Late answer for a page past the end of the history
+        }
+
+        // The first short page is the last one; an empty page means the previous one was
+        if (activities.isEmpty()) {
+            markLastPage(page - 1);
+        } else if (activities.size() < StravaRepository.MAX_PER_PAGE) {
+            markLastPage(page);
+        }
+        if (page <= lastPage) {
+            buffered.put(page, activities);
+        }
+
+        emitReadyPages();
+        if (nextPageToEmit > lastPage) {
+            finished = true;
+            listener.onComplete(totalActivities);
+        } else {
+            fillWindow();
+        }
+    }
+
+    private synchronized void onPageFailed(int page, Throwable t) {
+        inFlight.remove(page);
+        if (finished || page > lastPage) {
+            return; // Either already done or the page was cancelled as past the end
+        }
+        finished = true;
+        cancelPagesAfter(0);
+        listener.onError(t);
+    }
+
+    private void markLastPage(int page) {
+        if (page < lastPage) {
+            lastPage = page;
+            cancelPagesAfter(page);
+            buffered.tailMap(page, false).clear();
+        }
+    }
+
+    // Cancels every in-flight request for a page number greater than the given page
+    private void cancelPagesAfter(int page) {
+        List<Integer> cancelled = new ArrayList<>();
+        for (Map.Entry<Integer, Call<List<Activity>>> entry : inFlight.entrySet()) {
+            if (entry.getKey() > page) {
+                entry.getValue().cancel();
+                cancelled.add(entry.getKey());
+            }
+        }
+        for (Integer key : cancelled) {
+            inFlight.remove(key);
+        }
+    }
+
+    // Hands every contiguous buffered page to the listener
+    private void emitReadyPages() {
+        List<Activity> next;
+        while ((next = buffered.remove(nextPageToEmit)) != null) {
+            totalActivities += next.size();
+            listener.onPage(nextPageToEmit, next);
+            nextPageToEmit++;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+// Reads a JSON array of activities one element at a time, so each activity can be handed on
+// while the rest of the body is still arriving and no List of the whole page is built
+public class ActivityJsonStream implements Iterator<Activity>, Closeable {
+    private static final ActivityTypeAdapter ADAPTER = new ActivityTypeAdapter();
+
+    private final JsonReader reader;
+    private boolean started;
+    private boolean ended;
+
+    public ActivityJsonStream(Reader body) {
+        reader = new JsonReader(body);
+    }
+
+    // Pushes every activity in the array to the consumer and returns how many there were
+    public static int forEach(Reader body, Consumer<Activity> consumer) throws IOException {
+        try (ActivityJsonStream stream = new ActivityJsonStream(body)) {
+            int count = 0;
+            while (stream.hasNextActivity()) {
+                consumer.accept(stream.nextActivity());
+                count++;
+            }
+            return count;
+        }
+    }
+
+    // IOException-throwing forms of hasNext/next
+    public boolean hasNextActivity() throws IOException {
+        if (ended) {
+            return false;
+        }
+        if (!started) {
+            if (reader.peek() == JsonToken.NULL) {
+                ended = true;
+                return false;
+            }
+            reader.beginArray();
+            started = true;
+        }
+        if (reader.hasNext()) {
+            return true;
+        }
+        reader.endArray();
+        ended = true;
+        return false;
+    }
+
+    public Activity nextActivity() throws IOException {
+        if (!hasNextActivity()) {
+            throw new NoSuchElementException();
+        }
+        return ADAPTER.read(reader);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return hasNextActivity();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed activity page", e);
+        }
+    }
+
+    @Override
+    public Activity next() {
+        try {
+            return nextActivity();
+        } catch (IOException e) {
+            throw new IllegalStateException("Malformed activity page", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
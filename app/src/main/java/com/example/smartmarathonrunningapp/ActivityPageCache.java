@@ -0,0 +1,450 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Activity pages in two tiers: decoded pages in a memory LRU bounded by an estimate of their heap
+// size, and the raw JSON with its validators on disk. A page younger than maxAge is served without
+// a request. An older one is revalidated with If-None-Match / If-Modified-Since, and a 304 reuses
+// the cached page without downloading or parsing it again. Pages are kept under a hash of the access
+// token they were fetched with, so one athlete is never served another's; a token refresh starts the
+// athlete's pages afresh, at worst one download per page every six hours.
+public class ActivityPageCache {
+    static final long DEFAULT_MAX_MEMORY_BYTES = 2L * 1024 * 1024;
+    static final long DEFAULT_MAX_DISK_BYTES = 8L * 1024 * 1024;
+    static final long DEFAULT_MAX_AGE_MILLIS = 60 * 1000L; // New runs show up within a minute
+    static final int ACTIVITY_OVERHEAD_BYTES = 200; // Activity object, boxed list slot and string headers
+    private static final int DISK_MAGIC = 0x53504331; // "SPC1"
+    private static final int VALIDATED_AT_OFFSET = 4; // Right after the magic number
+    private static final LatencyHistogram PARSE = Metrics.histogram(Metrics.PARSE);
+
+    private final StravaApiService apiService;
+    private final RateLimitScheduler scheduler;
+    private final File diskDir; // Null for a memory-only cache
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final long maxAgeMillis;
+    private final RateLimitScheduler.Clock clock;
+
+    private final LinkedHashMap<String, Page> memory = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long memoryBytes;
+    private int hitCount; // Served without any request
+    private int missCount; // Nothing cached: full download
+    private int revalidationCount; // Stale copy checked with a conditional request
+    private int notModifiedCount; // Revalidations answered with 304
+    private int evictionCount; // Pages dropped from memory to stay under maxMemoryBytes
+
+    public ActivityPageCache(StravaApiService apiService, RateLimitScheduler scheduler, File diskDir) {
+        this(apiService, scheduler, diskDir, DEFAULT_MAX_MEMORY_BYTES, DEFAULT_MAX_DISK_BYTES, DEFAULT_MAX_AGE_MILLIS,
+                System::currentTimeMillis);
+    }
+
+    public ActivityPageCache(StravaApiService apiService, RateLimitScheduler scheduler, File diskDir,
+                             long maxMemoryBytes, long maxDiskBytes, long maxAgeMillis, RateLimitScheduler.Clock clock) {
+        this.apiService = apiService;
+        this.scheduler = scheduler;
+        this.diskDir = diskDir;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.clock = clock;
+        if (diskDir != null && !diskDir.isDirectory() && !diskDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create page cache directory " + diskDir);
+        }
+    }
+
+    // The page from memory, disk or Strava, whichever is the cheapest still-valid source.
+    // Blocks, so call it from a background thread.
+    public List<Activity> getPage(String accessToken, int page, int perPage) throws IOException {
+        List<Activity> fresh = getIfFresh(accessToken, 0, page, perPage);
+        if (fresh != null) {
+            return fresh;
+        }
+        Response<List<Activity>> response = scheduler.execute(newCall(accessToken, 0, page, perPage),
+                RateLimitScheduler.Priority.FOREGROUND);
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Activity page " + page + " failed: HTTP " + response.code());
+        }
+        return response.body();
+    }
+
+    // The page if the cached copy is still fresh, or null when it needs a request. `before` (epoch
+    // seconds) narrows the listing as in StravaApiService; 0 for none. May read the disk.
+    public List<Activity> getIfFresh(String accessToken, long before, int page, int perPage) {
+        Page cached = lookup(key(accessToken, before, page, perPage));
+        if (cached == null || clock.nowMillis() - cached.validatedAt >= maxAgeMillis) {
+            return null;
+        }
+        synchronized (this) {
+            hitCount++;
+        }
+        return cached.activities;
+    }
+
+    // A request for the page that revalidates the cached copy, if there is one, and stores what comes
+    // back; a 304 answers with the cached page. Unlike getPage it can be enqueued, hedged and
+    // cancelled like any other call, and like one it is not scheduled until the caller does so.
+    public Call<List<Activity>> newCall(String accessToken, long before, int page, int perPage) {
+        String key = key(accessToken, before, page, perPage);
+        Page cached = lookup(key);
+        synchronized (this) {
+            if (cached != null) {
+                revalidationCount++;
+            } else {
+                missCount++;
+            }
+        }
+        return new PageCall(apiService.getUserActivitiesIfChanged("Bearer " + accessToken,
+                cached != null ? cached.etag : null, cached != null ? cached.lastModified : null,
+                before > 0 ? before : null, page, perPage), key, cached);
+    }
+
+    // Drops both tiers, e.g. when the athlete signs out
+    public void clear() {
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+        }
+        File[] files = diskFiles();
+        for (File file : files) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public synchronized int revalidationCount() {
+        return revalidationCount;
+    }
+
+    public synchronized int notModifiedCount() {
+        return notModifiedCount;
+    }
+
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long memoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized int memoryPageCount() {
+        return memory.size();
+    }
+
+    // Memory first, then disk; a page read from disk is decoded once and kept in memory
+    private Page lookup(String key) {
+        synchronized (this) {
+            Page page = memory.get(key);
+            if (page != null) {
+                return page;
+            }
+        }
+        Page page = readDisk(key);
+        if (page != null) {
+            putMemory(key, page);
+        }
+        return page;
+    }
+
+    private synchronized void putMemory(String key, Page page) {
+        Page previous = memory.put(key, page);
+        if (previous != null) {
+            memoryBytes -= previous.sizeBytes;
+        }
+        memoryBytes += page.sizeBytes;
+        Iterator<Map.Entry<String, Page>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+            Page evicted = eldest.next().getValue();
+            if (evicted == page) {
+                continue; // Keep the page just added even if it alone is over budget
+            }
+            eldest.remove();
+            memoryBytes -= evicted.sizeBytes;
+            evictionCount++;
+        }
+    }
+
+    // Layout: magic, validated-at millis, etag, last-modified, JSON length, JSON bytes
+    private void writeDisk(String key, Page page, byte[] json) {
+        if (diskDir == null) {
+            return;
+        }
+        File file = new File(diskDir, key);
+        File temp = new File(diskDir, key + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(DISK_MAGIC);
+            out.writeLong(page.validatedAt);
+            out.writeUTF(page.etag != null ? page.etag : "");
+            out.writeUTF(page.lastModified != null ? page.lastModified : "");
+            out.writeInt(json.length);
+            out.write(json);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return; // The disk tier is best effort; memory still has the page
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+        trimDisk();
+    }
+
+    private Page readDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        File file = new File(diskDir, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != DISK_MAGIC) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                return null;
+            }
+            long validatedAt = in.readLong();
+            String etag = in.readUTF();
+            String lastModified = in.readUTF();
+            byte[] json = new byte[in.readInt()];
+            in.readFully(json);
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(clock.nowMillis()); // Recently used pages survive disk trimming
+            return new Page(parse(json), etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified,
+                    validatedAt);
+        } catch (IOException | RuntimeException e) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete(); // Truncated or corrupt: treat as a miss
+            return null;
+        }
+    }
+
+    // Records a 304 on disk without rewriting the JSON
+    private void touchDisk(String key, long validatedAt) {
+        if (diskDir == null) {
+            return;
+        }
+        File file = new File(diskDir, key);
+        if (!file.isFile()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(VALIDATED_AT_OFFSET);
+            raf.writeLong(validatedAt);
+        } catch (IOException e) {
+            // Best effort: the page is only revalidated again sooner
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(clock.nowMillis());
+    }
+
+    // Deletes least recently used files until the directory fits in maxDiskBytes
+    private synchronized void trimDisk() {
+        File[] files = diskFiles();
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < files.length - 1 && total > maxDiskBytes; i++) { // Never the newest
+            total -= files[i].length();
+            //noinspection ResultOfMethodCallIgnored
+            files[i].delete();
+        }
+    }
+
+    private File[] diskFiles() {
+        File[] files = diskDir != null ? diskDir.listFiles((dir, name) -> name.startsWith("page-") && !name.endsWith(".tmp")) : null;
+        return files != null ? files : new File[0];
+    }
+
+    private static String key(String accessToken, long before, int page, int perPage) {
+        return "page-" + owner(accessToken) + "-" + page + "-" + perPage + (before > 0 ? "-before-" + before : "");
+    }
+
+    // First 64 bits of the token's SHA-256: keeps athletes apart without putting the token in a file name
+    private static String owner(String accessToken) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+        StringBuilder hex = new StringBuilder(16);
+        for (int i = 0; i < 8; i++) {
+            hex.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static List<Activity> parse(byte[] json) throws IOException {
+        long start = System.nanoTime();
+        List<Activity> activities = new ArrayList<>();
+        ActivityJsonStream.forEach(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8), activities::add);
+        PARSE.recordSince(start);
+        return Collections.unmodifiableList(activities); // Shared by every caller, so read-only
+    }
+
+    // Turns the answer to a conditional request into the page, storing a new copy or marking the
+    // cached one as confirmed. Error statuses are passed on for the caller to retry or report.
+    private Response<List<Activity>> complete(String key, Page cached, Response<ResponseBody> response) throws IOException {
+        long now = clock.nowMillis();
+        if (response.code() == 304 && cached != null) {
+            synchronized (this) {
+                notModifiedCount++;
+            }
+            cached.validatedAt = now;
+            touchDisk(key, now);
+            return Response.success(cached.activities, response.headers());
+        }
+        if (!response.isSuccessful()) {
+            return Response.error(response.errorBody(), response.raw());
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            throw new IOException("Activity page came back empty: HTTP " + response.code());
+        }
+        byte[] json = body.bytes();
+        Page fresh = new Page(parse(json), response.headers().get("ETag"), response.headers().get("Last-Modified"), now);
+        putMemory(key, fresh);
+        writeDisk(key, fresh, json);
+        return Response.success(fresh.activities, response.headers());
+    }
+
+    // A conditional page request whose answer goes through complete() on the way back
+    private class PageCall implements Call<List<Activity>> {
+        private final Call<ResponseBody> http;
+        private final String key;
+        private final Page cached; // The copy being revalidated, or null
+
+        PageCall(Call<ResponseBody> http, String key, Page cached) {
+            this.http = http;
+            this.key = key;
+            this.cached = cached;
+        }
+
+        @NonNull
+        @Override
+        public Response<List<Activity>> execute() throws IOException {
+            return complete(key, cached, http.execute());
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<List<Activity>> callback) {
+            http.enqueue(new Callback<ResponseBody>() {
+                @Override
+                public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
+                    Response<List<Activity>> page;
+                    try {
+                        page = complete(key, cached, response);
+                    } catch (IOException e) {
+                        callback.onFailure(PageCall.this, e);
+                        return;
+                    }
+                    callback.onResponse(PageCall.this, page);
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<ResponseBody> call, @NonNull Throwable t) {
+                    callback.onFailure(PageCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return http.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            http.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return http.isCanceled();
+        }
+
+        @NonNull
+        @Override
+        public Call<List<Activity>> clone() {
+            return new PageCall(http.clone(), key, cached);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return http.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return http.timeout();
+        }
+    }
+
+    // One decoded page and the validators Strava sent with it
+    private static class Page {
+        final List<Activity> activities;
+        final String etag;
+        final String lastModified;
+        final long sizeBytes; // Estimated heap size of the decoded page
+        volatile long validatedAt; // Last time Strava confirmed this copy
+
+        Page(List<Activity> activities, String etag, String lastModified, long validatedAt) {
+            this.activities = activities;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.validatedAt = validatedAt;
+            long size = 0;
+            for (Activity activity : activities) {
+                size += ACTIVITY_OVERHEAD_BYTES + 2L * (length(activity.getName()) + length(activity.getType())
+                        + length(activity.getStart_date()) + length(activity.getStart_date_local()));
+            }
+            sizeBytes = size;
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
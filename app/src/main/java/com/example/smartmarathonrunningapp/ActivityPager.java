@@ -0,0 +1,263 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// Pages the athlete's history into a scrolling list. Rows are read from the local store a page at a
+// time as they come near the screen; past the end of the store, older pages are pulled from Strava
+// and saved first. At most maxPagesInMemory pages are held, so memory stays flat however long the
+// history is. Store reads and Strava fetches run on separate executors, so rows already stored
+// never wait for the network. All public methods are called on the main thread.
+public class ActivityPager {
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int DEFAULT_PREFETCH_DISTANCE = 25; // Rows ahead of the screen that should already be loaded
+    static final int DEFAULT_MAX_PAGES_IN_MEMORY = 6;
+
+    // Receives list changes on the main thread
+    public interface Listener {
+        void onRowsInserted(int position, int count);
+
+        void onRowsRemoved(int position, int count);
+
+        void onRowsLoaded(int firstPosition, int count);
+
+        void onError(Throwable t);
+    }
+
+    // Older history from Strava, newest first: up to perPage activities started before `before`
+    // (epoch seconds), or the newest ones when it is 0
+    public interface RemoteSource {
+        List<Activity> loadBefore(long before, int perPage) throws IOException;
+    }
+
+    private final ActivityStore store;
+    private final RemoteSource remote; // Null to page the local store only
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final int maxPagesInMemory;
+    private final Executor ioExecutor; // Store reads
+    private final Executor remoteExecutor; // Strava fetches and the saves that follow them
+    private final Executor mainExecutor;
+    private Listener listener; // Null while no screen is attached
+
+    private final Map<Integer, List<Activity>> pages = new HashMap<>(); // Loaded pages by index
+    private final Set<Integer> loading = new HashSet<>(); // Pages with a load queued or running
+    private int itemCount;
+    private long newestShown; // Start time of the newest row the listener knows about; 0 for none
+    private boolean remoteExhausted; // Strava has no history beyond what the store holds
+    private boolean fetchingRemote;
+    private int lastAccessedPage;
+    private int generation; // Bumped by refresh() so loads started before it are ignored
+
+    public ActivityPager(ActivityStore store, RemoteSource remote, Executor ioExecutor, Executor remoteExecutor,
+                         Executor mainExecutor, Listener listener) {
+        this(store, remote, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, DEFAULT_MAX_PAGES_IN_MEMORY, ioExecutor,
+                remoteExecutor, mainExecutor, listener);
+    }
+
+    public ActivityPager(ActivityStore store, RemoteSource remote, int pageSize, int prefetchDistance, int maxPagesInMemory,
+                         Executor ioExecutor, Executor remoteExecutor, Executor mainExecutor, Listener listener) {
+        if (pageSize < 1 || prefetchDistance < 0) {
+            throw new IllegalArgumentException("Page size must be positive and prefetch distance non-negative");
+        }
+        if (maxPagesInMemory < 2 * prefetchDistance / pageSize + 2) {
+            throw new IllegalArgumentException("maxPagesInMemory must hold every page within the prefetch distance");
+        }
+        this.store = store;
+        this.remote = remote;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.maxPagesInMemory = maxPagesInMemory;
+        this.ioExecutor = ioExecutor;
+        this.remoteExecutor = remoteExecutor;
+        this.mainExecutor = mainExecutor;
+        this.listener = listener;
+        remoteExhausted = remote == null;
+    }
+
+    // Swaps the screen the pager reports to, e.g. after a rotation, or detaches it with null so a
+    // finished screen is not kept alive by loads still running. A new listener is told about the
+    // current rows straight away.
+    public void setListener(Listener listener) {
+        this.listener = listener;
+        if (listener != null && itemCount > 0) {
+            listener.onRowsInserted(0, itemCount);
+        }
+    }
+
+    // Drops every loaded page and reads the row count again, e.g. after a sync added new runs
+    public void refresh() {
+        final int current = ++generation;
+        pages.clear();
+        loading.clear();
+        fetchingRemote = false;
+        remoteExhausted = remote == null;
+        final long newest = newestShown;
+        ioExecutor.execute(() -> {
+            // A sync usually adds runs newer than every stored one, but the first one downloads the
+            // whole history, oldest first, around whatever an earlier fetch of older pages saved
+            int count = store.count();
+            int newer = newest > 0 ? store.countStartedAfter(newest) : count;
+            long high = store.getHighWaterMark();
+            mainExecutor.execute(() -> {
+                if (current == generation) {
+                    setItemCount(count, newer, high);
+                    loadAround(lastAccessedPage * pageSize);
+                }
+            });
+        });
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    // The row at a position, or null while its page is loading. Also starts loading every page
+    // within prefetchDistance of the position, and more history once the end is that close.
+    public Activity get(int position) {
+        lastAccessedPage = position / pageSize;
+        loadAround(position);
+        return peek(position);
+    }
+
+    // The row at a position if its page is in memory, without loading anything
+    public Activity peek(int position) {
+        List<Activity> page = pages.get(position / pageSize);
+        int index = position % pageSize;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    public int loadedPageCount() {
+        return pages.size();
+    }
+
+    public int loadedRowCount() {
+        int rows = 0;
+        for (List<Activity> page : pages.values()) {
+            rows += page.size();
+        }
+        return rows;
+    }
+
+    private void loadAround(int position) {
+        int first = Math.max(0, position - prefetchDistance) / pageSize;
+        int last = Math.min(itemCount - 1, position + prefetchDistance) / pageSize;
+        for (int page = first; page <= last && itemCount > 0; page++) {
+            if (!pages.containsKey(page) && !loading.contains(page)) {
+                loadPage(page);
+            }
+        }
+        if (position + prefetchDistance >= itemCount && !remoteExhausted && !fetchingRemote) {
+            fetchOlderHistory();
+        }
+    }
+
+    private void loadPage(final int page) {
+        final int current = generation;
+        loading.add(page);
+        ioExecutor.execute(() -> {
+            List<Activity> rows = store.getActivities(pageSize, page * pageSize);
+            mainExecutor.execute(() -> {
+                if (current != generation) {
+                    return;
+                }
+                loading.remove(page);
+                pages.put(page, rows);
+                trimPages();
+                if (listener != null) {
+                    listener.onRowsLoaded(page * pageSize, rows.size());
+                }
+            });
+        });
+    }
+
+    // Saves the Strava page just older than the store, then grows the list. Strava's page numbers
+    // shift as runs are added or deleted, so history is asked for by time instead: everything
+    // started before the oldest stored run, including its own second so runs sharing it are not
+    // skipped. The run already stored is replaced rather than added.
+    private void fetchOlderHistory() {
+        final int current = generation;
+        final int storedRows = itemCount;
+        final long newest = newestShown;
+        fetchingRemote = true;
+        remoteExecutor.execute(() -> {
+            try {
+                long oldest = store.getLowWaterMark();
+                int countBefore = store.count();
+                List<Activity> activities = remote.loadBefore(oldest > 0 ? oldest + 1 : 0, StravaRepository.MAX_PER_PAGE);
+                if (!activities.isEmpty()) {
+                    store.saveAll(activities);
+                }
+                int count = store.count();
+                int newer = newest > 0 ? store.countStartedAfter(newest) : 0; // From a sync meanwhile
+                long high = store.getHighWaterMark();
+                // A short page is the end of the history, and so is one that added nothing
+                boolean exhausted = activities.size() < StravaRepository.MAX_PER_PAGE || count == countBefore;
+                mainExecutor.execute(() -> {
+                    if (current != generation) {
+                        return;
+                    }
+                    fetchingRemote = false;
+                    remoteExhausted = exhausted;
+                    if (newer > 0) {
+                        pages.clear(); // Every row moved down
+                    } else {
+                        pages.remove(storedRows / pageSize); // The old last page may have been partial
+                    }
+                    setItemCount(count, newer, high); // Older runs go after every row shown so far
+                    loadAround(lastAccessedPage * pageSize);
+                });
+            } catch (IOException e) {
+                mainExecutor.execute(() -> {
+                    if (current == generation) {
+                        fetchingRemote = false;
+                        remoteExhausted = true; // Stop retrying on every bind; refresh() tries again
+                        if (listener != null) {
+                            listener.onError(e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // Of the rows added, the `newer` ones are reported at the top and the rest, older than every row
+    // shown, at the end. Rows lost, which only a shrinking store causes, are reported at the end.
+    private void setItemCount(int count, int newer, long newest) {
+        int oldCount = itemCount;
+        itemCount = count;
+        newestShown = newest;
+        if (listener == null || count == oldCount) {
+            return;
+        }
+        if (count > oldCount) {
+            int top = Math.min(newer, count - oldCount);
+            if (top > 0) {
+                listener.onRowsInserted(0, top);
+            }
+            if (count - oldCount > top) {
+                listener.onRowsInserted(oldCount + top, count - oldCount - top);
+            }
+        } else {
+            listener.onRowsRemoved(count, oldCount - count);
+        }
+    }
+
+    // Drops the pages farthest from where the list was last read until the cap is met
+    private void trimPages() {
+        while (pages.size() > maxPagesInMemory) {
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest < 0 || Math.abs(page - lastAccessedPage) > Math.abs(farthest - lastAccessedPage)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+        }
+    }
+}
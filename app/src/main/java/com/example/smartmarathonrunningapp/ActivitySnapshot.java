@@ -0,0 +1,127 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// What the main screen shows first: the latest activity and a run summary, kept in a small file so
+// a cold start can draw them before the database is opened or Strava is asked for anything
+public class ActivitySnapshot {
+    private final Activity latest; // Null when nothing has been synced yet
+    private final int runCount;
+    private final double runDistance; // Meters
+    private final long runMovingTime; // Seconds
+
+    public ActivitySnapshot(Activity latest, int runCount, double runDistance, long runMovingTime) {
+        this.latest = latest;
+        this.runCount = runCount;
+        this.runDistance = runDistance;
+        this.runMovingTime = runMovingTime;
+    }
+
+    // The current snapshot of the store. Reads the whole history, so call it from a background thread.
+    public static ActivitySnapshot of(ActivityStore store) {
+        ActivityColumns columns = store.loadColumns();
+        int runs = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.type(i) == ActivityColumns.TYPE_RUN) {
+                runs++;
+            }
+        }
+        return new ActivitySnapshot(store.getLatest(), runs, columns.totalDistance(ActivityColumns.TYPE_RUN),
+                columns.totalMovingTime(ActivityColumns.TYPE_RUN));
+    }
+
+    // The saved snapshot, or null if there is none or it cannot be read
+    public static ActivitySnapshot read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            JsonObject json = StravaJson.gson().fromJson(reader, JsonObject.class);
+            if (json == null || !json.has("run_count") || !json.has("run_distance") || !json.has("run_moving_time")) {
+                return null;
+            }
+            Activity latest = json.has("latest") ? StravaJson.gson().fromJson(json.get("latest"), Activity.class) : null;
+            return new ActivitySnapshot(latest, json.get("run_count").getAsInt(), json.get("run_distance").getAsDouble(),
+                    json.get("run_moving_time").getAsLong());
+        } catch (IOException | JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            return null; // A damaged snapshot only costs the fast first frame
+        }
+    }
+
+    // Replaces the saved snapshot; a reader sees the old file or the new one, never half of it
+    public void write(File file) throws IOException {
+        JsonObject json = new JsonObject();
+        if (latest != null) {
+            json.add("latest", StravaJson.gson().toJsonTree(latest, Activity.class));
+        }
+        json.addProperty("run_count", runCount);
+        json.addProperty("run_distance", runDistance);
+        json.addProperty("run_moving_time", runMovingTime);
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            StravaJson.gson().toJson(json, writer);
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+    }
+
+    public Activity getLatest() {
+        return latest;
+    }
+
+    public int getRunCount() {
+        return runCount;
+    }
+
+    public double getRunDistance() {
+        return runDistance;
+    }
+
+    public long getRunMovingTime() {
+        return runMovingTime;
+    }
+
+    // Same content on screen: the same latest activity with the same shown fields, and the same summary
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ActivitySnapshot)) {
+            return false;
+        }
+        ActivitySnapshot other = (ActivitySnapshot) o;
+        return runCount == other.runCount
+                && runDistance == other.runDistance
+                && runMovingTime == other.runMovingTime
+                && (latest == null ? other.latest == null : other.latest != null && sameShownFields(latest, other.latest));
+    }
+
+    private static boolean sameShownFields(Activity a, Activity b) {
+        return a.getId() == b.getId()
+                && Objects.equals(a.getName(), b.getName())
+                && a.getDistance() == b.getDistance()
+                && a.getMoving_time() == b.getMoving_time()
+                && Objects.equals(a.getType(), b.getType())
+                && Objects.equals(a.getStart_date(), b.getStart_date());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(latest != null ? latest.getId() : 0, runCount, runDistance, runMovingTime);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.List;
+
+// On-device copy of the athlete's activities, keyed by Strava activity id
+public interface ActivityStore {
+
+    // Inserts or replaces a page of activities as one write
+    void saveAll(List<Activity> activities);
+
+    // Start time (epoch seconds) of the newest stored activity, or 0 when the store is empty
+    long getHighWaterMark();
+
+    // Start time (epoch seconds) of the oldest stored activity, or 0 when the store is empty
+    long getLowWaterMark();
+
+    // Number of stored activities that started after the given time (epoch seconds)
+    int countStartedAfter(long epochSeconds);
+
+    // Most recent activity, or null when nothing has been synced yet
+    Activity getLatest();
+
+    // Activities newest first, for list screens
+    List<Activity> getActivities(int limit, int offset);
+
+    int count();
+
+    // Whole history, oldest first, as primitive columns for analytics
+    ActivityColumns loadColumns();
+}
@@ -0,0 +1,46 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.File;
+import java.io.IOException;
+
+// Encoded activity streams on disk, one ActivityStreamsFile per activity id
+public class ActivityStreamStore {
+    private final File dir;
+
+    public ActivityStreamStore(File dir) {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Cannot create streams directory " + dir);
+        }
+    }
+
+    public boolean contains(long activityId) {
+        return fileFor(activityId).isFile();
+    }
+
+    public void save(long activityId, ActivityStreams streams) throws IOException {
+        ActivityStreamsFile.write(fileFor(activityId), streams);
+    }
+
+    // The mapped streams, or null if they have not been downloaded
+    public ActivityStreamsFile open(long activityId) throws IOException {
+        File file = fileFor(activityId);
+        return file.isFile() ? ActivityStreamsFile.open(file) : null;
+    }
+
+    // Total bytes on disk
+    public long sizeBytes() {
+        long total = 0;
+        File[] files = dir.listFiles((parent, name) -> name.endsWith(".streams"));
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private File fileFor(long activityId) {
+        return new File(dir, activityId + ".streams");
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Per-sample streams of one activity as fixed-point ints, one column per stream type. Values are
+// stored multiplied by the type's scale (e.g. altitude in decimeters), which keeps Strava's
+// precision and lets ActivityStreamsFile delta-encode every column the same way.
+public class ActivityStreams {
+    // Stream types, also the column ids on disk; latlng is split into two columns
+    public static final int TIME = 0; // Seconds since the start
+    public static final int DISTANCE = 1; // Meters
+    public static final int LATITUDE = 2; // Degrees
+    public static final int LONGITUDE = 3; // Degrees
+    public static final int ALTITUDE = 4; // Meters
+    public static final int VELOCITY = 5; // Smoothed, m/s
+    public static final int HEARTRATE = 6; // Beats per minute
+    public static final int CADENCE = 7; // Steps or revolutions per minute
+    public static final int WATTS = 8;
+    public static final int TEMP = 9; // Degrees Celsius
+    public static final int MOVING = 10; // 1 while moving, 0 while stopped
+    public static final int GRADE = 11; // Smoothed, percent
+    public static final int TYPE_COUNT = 12;
+
+    // Multiplier from Strava's value to the stored int, by type
+    private static final int[] SCALES = {1, 10, 1_000_000, 1_000_000, 10, 100, 1, 1, 1, 1, 1, 10};
+
+    // Every stream key Strava accepts, for the streams request
+    static final String ALL_KEYS = "time,distance,latlng,altitude,velocity_smooth,heartrate,cadence,watts,temp,moving,grade_smooth";
+
+    private final int[][] columns = new int[TYPE_COUNT][]; // Null where the activity has no such stream
+    private int pointCount;
+
+    public static int scale(int type) {
+        return SCALES[type];
+    }
+
+    // Parses Strava's key_by_type response, e.g. {"time":{"data":[0,1,..]},"latlng":{"data":[[lat,lng],..]}}.
+    // Values are read straight into int arrays without building a JSON tree.
+    public static ActivityStreams read(Reader body) throws IOException {
+        ActivityStreams streams = new ActivityStreams();
+        JsonReader reader = new JsonReader(body);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int type = typeFor(reader.nextName());
+            if (type < 0 || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue(); // A stream this app does not store
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("data".equals(reader.nextName())) {
+                    streams.readData(reader, type);
+                } else {
+                    reader.skipValue(); // series_type, original_size, resolution
+                }
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return streams;
+    }
+
+    public int pointCount() {
+        return pointCount;
+    }
+
+    public boolean has(int type) {
+        return columns[type] != null;
+    }
+
+    // Stored (scaled) values of one stream, or null if the activity has none
+    public int[] column(int type) {
+        return columns[type];
+    }
+
+    // Sets a stream from scaled values; every stream of an activity has the same length
+    public void setColumn(int type, int[] values) {
+        checkLength(values.length);
+        columns[type] = values;
+    }
+
+    private void readData(JsonReader reader, int type) throws IOException {
+        int[] values = new int[Math.max(pointCount, 1024)];
+        int[] longitudes = type == LATITUDE ? new int[values.length] : null;
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                longitudes = longitudes != null ? Arrays.copyOf(longitudes, count * 2) : null;
+            }
+            if (longitudes != null) {
+                reader.beginArray();
+                values[count] = scaled(reader, LATITUDE);
+                longitudes[count] = scaled(reader, LONGITUDE);
+                reader.endArray();
+            } else {
+                values[count] = scaled(reader, type);
+            }
+            count++;
+        }
+        reader.endArray();
+        setColumn(type, Arrays.copyOf(values, count));
+        if (longitudes != null) {
+            setColumn(LONGITUDE, Arrays.copyOf(longitudes, count));
+        }
+    }
+
+    private static int scaled(JsonReader reader, int type) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return 0; // Strava sends null for samples a sensor missed
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean() ? 1 : 0;
+        }
+        return (int) Math.round(reader.nextDouble() * SCALES[type]);
+    }
+
+    private void checkLength(int length) {
+        for (int[] column : columns) {
+            if (column != null && column.length != length) {
+                throw new IllegalArgumentException("Stream has " + length + " points, expected " + column.length);
+            }
+        }
+        pointCount = length;
+    }
+
+    private static int typeFor(String key) {
+        switch (key) {
+            case "time":
+                return TIME;
+            case "distance":
+                return DISTANCE;
+            case "latlng":
+                return LATITUDE;
+            case "altitude":
+                return ALTITUDE;
+            case "velocity_smooth":
+                return VELOCITY;
+            case "heartrate":
+                return HEARTRATE;
+            case "cadence":
+                return CADENCE;
+            case "watts":
+                return WATTS;
+            case "temp":
+                return TEMP;
+            case "moving":
+                return MOVING;
+            case "grade_smooth":
+                return GRADE;
+            default:
+                return -1;
+        }
+    }
+}
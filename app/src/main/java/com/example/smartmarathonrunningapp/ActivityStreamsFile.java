@@ -0,0 +1,195 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Columnar binary form of ActivityStreams, read back through a memory-mapped buffer. Each column
+// holds the differences between consecutive samples, zigzag-mapped to unsigned and written as
+// varints, so a 1 Hz stream mostly costs one byte per sample. Layout (big-endian):
+//   int magic, int pointCount, int columnCount,
+//   columnCount x (int type, int offset, int length), then the column bytes.
+public class ActivityStreamsFile {
+    private static final int MAGIC = 0x41535431; // "AST1"
+    private static final int HEADER_BYTES = 12;
+    private static final int DIRECTORY_ENTRY_BYTES = 12;
+
+    private final ByteBuffer buffer; // Whole file, mapped read-only
+    private final int pointCount;
+    private final int[] offsets = new int[ActivityStreams.TYPE_COUNT];
+    private final int[] lengths = new int[ActivityStreams.TYPE_COUNT];
+
+    private ActivityStreamsFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an activity streams file");
+        }
+        pointCount = buffer.getInt(4);
+        int columnCount = buffer.getInt(8);
+        Arrays.fill(offsets, -1);
+        for (int i = 0; i < columnCount; i++) {
+            int entry = HEADER_BYTES + i * DIRECTORY_ENTRY_BYTES;
+            int type = buffer.getInt(entry);
+            int offset = buffer.getInt(entry + 4);
+            int length = buffer.getInt(entry + 8);
+            if (type < 0 || type >= ActivityStreams.TYPE_COUNT || offset < 0 || offset + length > buffer.limit()) {
+                throw new IOException("Corrupt activity streams file");
+            }
+            offsets[type] = offset;
+            lengths[type] = length;
+        }
+    }
+
+    // Encodes the streams into file. Written to a temporary file first and renamed, so a reader
+    // never maps a half-written file.
+    public static void write(File file, ActivityStreams streams) throws IOException {
+        int columnCount = 0;
+        int maxBytes = 0;
+        for (int type = 0; type < ActivityStreams.TYPE_COUNT; type++) {
+            if (streams.has(type)) {
+                columnCount++;
+                maxBytes += streams.pointCount() * 5; // Worst case for a 32-bit varint
+            }
+        }
+        int dataStart = HEADER_BYTES + columnCount * DIRECTORY_ENTRY_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(dataStart + maxBytes).order(ByteOrder.BIG_ENDIAN);
+        out.putInt(MAGIC).putInt(streams.pointCount()).putInt(columnCount);
+        out.position(dataStart);
+        int entry = HEADER_BYTES;
+        for (int type = 0; type < ActivityStreams.TYPE_COUNT; type++) {
+            if (!streams.has(type)) {
+                continue;
+            }
+            int start = out.position();
+            int previous = 0;
+            for (int value : streams.column(type)) {
+                putVarint(out, zigzag(value - previous));
+                previous = value;
+            }
+            out.putInt(entry, type).putInt(entry + 4, start).putInt(entry + 8, out.position() - start);
+            entry += DIRECTORY_ENTRY_BYTES;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            stream.write(out.array(), 0, out.position());
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+    }
+
+    // Maps the file read-only; the mapping stays valid after the channel is closed
+    public static ActivityStreamsFile open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ActivityStreamsFile(mapped);
+        }
+    }
+
+    public int pointCount() {
+        return pointCount;
+    }
+
+    public boolean has(int type) {
+        return offsets[type] >= 0;
+    }
+
+    // Encoded size of one column in bytes
+    public int columnBytes(int type) {
+        return has(type) ? lengths[type] : 0;
+    }
+
+    public int sizeBytes() {
+        return buffer.limit();
+    }
+
+    // Starts a scan of one column; the cursor decodes in place from the mapping
+    public Cursor cursor(int type) {
+        return cursor(type, new Cursor());
+    }
+
+    // Same, reusing a cursor so repeated scans allocate nothing
+    public Cursor cursor(int type, Cursor reuse) {
+        if (!has(type)) {
+            throw new IllegalArgumentException("No stream of type " + type);
+        }
+        reuse.reset(buffer, offsets[type], offsets[type] + lengths[type], ActivityStreams.scale(type));
+        return reuse;
+    }
+
+    // Decodes a whole column onto the heap, for callers that need random access
+    public int[] readColumn(int type) {
+        return readColumn(type, new int[pointCount], new Cursor());
+    }
+
+    // Same into a caller's array of at least pointCount(), so a worker can reuse its buffers
+    public int[] readColumn(int type, int[] into, Cursor reuse) {
+        Cursor cursor = cursor(type, reuse);
+        for (int i = 0; i < pointCount; i++) {
+            into[i] = cursor.nextRaw();
+        }
+        return into;
+    }
+
+    // Forward-only reader of one column
+    public static class Cursor {
+        private ByteBuffer buffer;
+        private int position;
+        private int end;
+        private int value;
+        private double scale;
+
+        private void reset(ByteBuffer buffer, int start, int end, int scale) {
+            this.buffer = buffer;
+            this.position = start;
+            this.end = end;
+            this.value = 0;
+            this.scale = scale;
+        }
+
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        // Next value as stored, e.g. decimeters for altitude
+        public int nextRaw() {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                result |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += (result >>> 1) ^ -(result & 1); // Undo the zigzag
+            return value;
+        }
+
+        // Next value in Strava's unit, e.g. meters for altitude
+        public double next() {
+            return nextRaw() / scale;
+        }
+    }
+
+    // Small negative and positive deltas both become small unsigned numbers: 0, -1, 1, -2 -> 0, 1, 2, 3
+    private static int zigzag(int delta) {
+        return (delta << 1) ^ (delta >> 31);
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Pulls new activities from Strava into the local store in the background, so opening the app
+// only reads the database. Each Strava page is saved in one transaction, then the streams of its
+// runs are downloaded for the best efforts. Runs only on a network with the battery not low, and
+// duplicate requests for a run join the one already scheduled. In coach mode the same run also
+// syncs every athlete of the group.
+public class ActivitySyncWorker extends Worker {
+    static final String PERIODIC_WORK_NAME = "activity-sync";
+    static final String ONE_TIME_WORK_NAME = "activity-sync-now";
+    static final String KEY_SAVED = "saved"; // Output: activities saved by the run
+    static final long PERIOD_HOURS = 1;
+    static final int MAX_ATTEMPTS = 5; // A run that keeps failing waits for the next period instead
+
+    private final StravaRepository repository;
+    private final ActivityStore store;
+    private final TokenManager tokenManager;
+    private final AthleteRoster roster; // Null when there is no coach group to sync
+    private final ActivityStreamStore streamStore; // Null when best efforts are not kept up to date
+
+    // Called by WorkManager; uses the app's shared client, store, tokens, coach group and streams
+    public ActivitySyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        this(context, params, new StravaRepository(StravaClient.get(context)), SqliteActivityStore.get(context),
+                TokenManager.get(context), AthleteRoster.get(context), BestEffortEngine.streamStore(context));
+    }
+
+    ActivitySyncWorker(@NonNull Context context, @NonNull WorkerParameters params, StravaRepository repository,
+                       ActivityStore store, TokenManager tokenManager) {
+        this(context, params, repository, store, tokenManager, null, null);
+    }
+
+    ActivitySyncWorker(@NonNull Context context, @NonNull WorkerParameters params, StravaRepository repository,
+                       ActivityStore store, TokenManager tokenManager, AthleteRoster roster,
+                       ActivityStreamStore streamStore) {
+        super(context, params);
+        this.repository = repository;
+        this.store = store;
+        this.tokenManager = tokenManager;
+        this.roster = roster;
+        this.streamStore = streamStore;
+    }
+
+    // Keeps an hourly sync scheduled; calling it again leaves the existing schedule alone
+    public static void schedulePeriodic(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ActivitySyncWorker.class, PERIOD_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(PERIODIC_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    // Asks for a sync as soon as the constraints allow. While one is pending or running, further
+    // requests are dropped rather than queued behind it.
+    public static void syncNow(Context context) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ActivitySyncWorker.class)
+                .setConstraints(constraints())
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(ONE_TIME_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    static Constraints constraints() {
+        return new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+    }
+
+    // The athlete's own sync and the group's are independent, so one failing does not skip the other.
+    // Either failing retries the run; whatever did sync keeps its pages, so a retry only costs it one
+    // short request. A group member whose authorization Strava rejects is logged and skipped instead.
+    @NonNull
+    @Override
+    public Result doWork() {
+        int saved = 0;
+        boolean failed = false;
+        if (tokenManager.hasToken()) { // Nothing of their own to sync until the athlete connects Strava
+            try {
+                String accessToken = tokenManager.getAccessToken();
+                StravaRepository.PageListener bestEfforts = null;
+                // The first sync imports the whole history: one streams request per run would spend
+                // the rate budget for days, so only runs that arrive after it get their efforts
+                if (streamStore != null && store.getHighWaterMark() > 0) {
+                    BestEffortEngine engine = BestEffortEngine.get(getApplicationContext());
+                    bestEfforts = page -> addBestEfforts(accessToken, page, engine);
+                }
+                saved = repository.syncNewActivities(accessToken, store, bestEfforts);
+            } catch (IOException e) {
+                Log.e("StravaAPI", "Background sync failed: ", e);
+                failed = true;
+            }
+        }
+        if (roster != null && !roster.isEmpty()) {
+            try {
+                CoachSync.Result group = new CoachSync(repository).syncAll(roster.athletes());
+                for (Map.Entry<String, IOException> failure : group.failures().entrySet()) {
+                    if (failure.getValue() instanceof StravaAuthException) {
+                        // Skipped until they reconnect: a retry would only fail again and hold up the group
+                        Log.w("StravaAPI", "Coach sync skipped " + failure.getKey() + ": " + failure.getValue().getMessage());
+                    } else {
+                        Log.e("StravaAPI", "Coach sync failed for " + failure.getKey() + ": ", failure.getValue());
+                        failed = true;
+                    }
+                }
+            } catch (IOException e) {
+                Log.e("StravaAPI", "Coach sync failed: ", e);
+                failed = true;
+            }
+        }
+        if (failed) {
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+        return Result.success(new Data.Builder().putInt(KEY_SAVED, saved).build());
+    }
+
+    // Downloads the streams of each run on a saved page and adds its efforts. A run whose streams
+    // fail is logged and left out rather than failing the sync, whose page is already saved.
+    private void addBestEfforts(String accessToken, List<Activity> page, BestEffortEngine engine) {
+        for (Activity activity : page) {
+            if (!ActivityColumns.isRun(ActivityColumns.typeCode(activity.getType()))) {
+                continue; // Rides and the rest have no running efforts, so their streams are not fetched
+            }
+            try {
+                engine.addActivity(activity, repository.getActivityStreams(accessToken, activity.getId(), streamStore,
+                        RateLimitScheduler.Priority.BACKGROUND));
+            } catch (IOException e) {
+                Log.w("StravaAPI", "Streams for activity " + activity.getId() + " failed: ", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Arrays;
+
+// Day buckets over ActivityColumns, so time-window queries are a binary search plus the rows
+// that match instead of a scan of the whole history. Build it again after appending rows.
+public class ActivityTimeIndex {
+    private final ActivityColumns columns;
+    private final int[] rowsByDay; // Row numbers grouped by local day, in start order within a day
+    private final int[] dayKeys; // Distinct local days, ascending
+    private final int[] dayOffsets; // Rows of dayKeys[i] are rowsByDay[dayOffsets[i] .. dayOffsets[i + 1])
+
+    public ActivityTimeIndex(ActivityColumns columns) {
+        this.columns = columns;
+        int size = columns.size();
+
+        // Sort (day, row) pairs packed into longs; rows are appended oldest first, so ties keep start order
+        long[] packed = new long[size];
+        for (int row = 0; row < size; row++) {
+            packed[row] = ((long) columns.localDay(row) << 32) | row;
+        }
+        Arrays.sort(packed);
+
+        rowsByDay = new int[size];
+        int[] keys = new int[size];
+        int[] offsets = new int[size + 1];
+        int days = 0;
+        for (int i = 0; i < size; i++) {
+            int day = (int) (packed[i] >> 32);
+            rowsByDay[i] = (int) packed[i];
+            if (days == 0 || keys[days - 1] != day) {
+                keys[days] = day;
+                offsets[days] = i;
+                days++;
+            }
+        }
+        offsets[days] = size;
+        dayKeys = Arrays.copyOf(keys, days);
+        dayOffsets = Arrays.copyOf(offsets, days + 1);
+    }
+
+    public ActivityColumns columns() {
+        return columns;
+    }
+
+    // Rows that started in [fromEpochSeconds, toEpochSeconds), oldest first
+    public int[] rowsBetween(long fromEpochSeconds, long toEpochSeconds) {
+        int from = firstRowStartingAtOrAfter(fromEpochSeconds);
+        int to = firstRowStartingAtOrAfter(toEpochSeconds);
+        int[] rows = new int[Math.max(0, to - from)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return rows;
+    }
+
+    // Rows whose local start date falls on fromDay..toDay inclusive (days since 1970-01-01)
+    public int[] rowsOnDays(int fromDay, int toDay) {
+        int firstBucket = firstBucketOnOrAfter(fromDay);
+        int endBucket = firstBucketOnOrAfter(toDay + 1);
+        return Arrays.copyOfRange(rowsByDay, dayOffsets[firstBucket], dayOffsets[endBucket]);
+    }
+
+    // Rows in the Monday-to-Sunday ISO week containing the given local day
+    public int[] rowsInIsoWeek(int day) {
+        int monday = IsoDates.isoWeekStart(day);
+        return rowsOnDays(monday, monday + 6);
+    }
+
+    public int countOnDay(int day) {
+        int bucket = Arrays.binarySearch(dayKeys, day);
+        return bucket < 0 ? 0 : dayOffsets[bucket + 1] - dayOffsets[bucket];
+    }
+
+    // Lower bound over the start times, which the columns keep in ascending order
+    private int firstRowStartingAtOrAfter(long epochSeconds) {
+        int low = 0;
+        int high = columns.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.startEpochSeconds(mid) < epochSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int firstBucketOnOrAfter(int day) {
+        int bucket = Arrays.binarySearch(dayKeys, day);
+        return bucket >= 0 ? bucket : -bucket - 1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+// Hand-written streaming adapter for Activity: reads the handful of fields the app uses and
+// skips everything else in Strava's payload (map polylines, athlete, gear, ...) without building trees
+public class ActivityTypeAdapter extends TypeAdapter<Activity> {
+
+    @Override
+    public Activity read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Activity activity = new Activity();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    activity.setId(in.nextLong());
+                    break;
+                case "name":
+                    activity.setName(in.nextString());
+                    break;
+                case "distance":
+                    activity.setDistance((float) in.nextDouble());
+                    break;
+                case "moving_time":
+                    activity.setMoving_time(in.nextInt());
+                    break;
+                case "elapsed_time":
+                    activity.setElapsed_time(in.nextInt());
+                    break;
+                case "total_elevation_gain":
+                    activity.setTotal_elevation_gain((float) in.nextDouble());
+                    break;
+                case "type":
+                    activity.setType(in.nextString());
+                    break;
+                case "start_date":
+                    activity.setStart_date(in.nextString());
+                    break;
+                case "start_date_local":
+                    activity.setStart_date_local(in.nextString());
+                    break;
+                default:
+                    in.skipValue(); // Unknown field, nested objects and arrays included
+                    break;
+            }
+        }
+        in.endObject();
+        activity.parseStart(); // Dates are parsed here, once, instead of on every query
+        return activity;
+    }
+
+    @Override
+    public void write(JsonWriter out, Activity activity) throws IOException {
+        if (activity == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(activity.getId());
+        out.name("name").value(activity.getName());
+        out.name("distance").value(activity.getDistance());
+        out.name("moving_time").value(activity.getMoving_time());
+        out.name("elapsed_time").value(activity.getElapsed_time());
+        out.name("total_elevation_gain").value(activity.getTotal_elevation_gain());
+        out.name("type").value(activity.getType());
+        out.name("start_date").value(activity.getStart_date());
+        out.name("start_date_local").value(activity.getStart_date_local());
+        out.endObject();
+    }
+}
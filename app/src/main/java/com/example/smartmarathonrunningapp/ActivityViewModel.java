@@ -0,0 +1,132 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The main screen's data: the snapshot summary and the paged history. Outlives the Activity across
+// rotations, so a re-created screen reattaches to the loads already running instead of starting
+// them again, and holds no reference to the Activity. When the screen is finished for good, the
+// Strava calls still in flight are cancelled and the background threads stopped.
+public class ActivityViewModel extends ViewModel {
+    private final ActivityStore store;
+    private final File snapshotFile;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(); // Database reads
+    private final ExecutorService pageExecutor = Executors.newSingleThreadExecutor(); // List pages from the store
+    private final ExecutorService remoteExecutor = Executors.newSingleThreadExecutor(); // Older history from Strava
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RequestScope requests = new RequestScope(); // Strava calls made for this screen
+    private final ActivityPager pager;
+    private final MutableLiveData<ActivitySnapshot> snapshot = new MutableLiveData<>();
+    private final AtomicBoolean revalidationQueued = new AtomicBoolean(); // At most one waiting behind the running one
+    private final Set<UUID> handledSyncs = new HashSet<>(); // Finished syncs already acted on; main thread only
+    private ActivitySnapshot currentSnapshot; // Last snapshot published; only touched on ioExecutor
+    private boolean loadStarted; // Main thread only
+
+    ActivityViewModel(StravaRepository repository, ActivityStore store, TokenManager tokenManager, File snapshotFile) {
+        this.store = store;
+        this.snapshotFile = snapshotFile;
+        // Pages past the end of the store come from the page cache or from Strava through the scope,
+        // so they can be cancelled
+        pager = new ActivityPager(store,
+                (before, perPage) -> repository.getActivitiesBefore(tokenManager.getAccessToken(), before, perPage, requests),
+                pageExecutor, remoteExecutor, mainHandler::post, null);
+    }
+
+    // Builds the ViewModel on the app's shared client, store and tokens
+    public static ViewModelProvider.Factory factory(Context context) {
+        Context app = context.getApplicationContext();
+        return new ViewModelProvider.Factory() {
+            @NonNull
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+                return (T) new ActivityViewModel(new StravaRepository(StravaClient.get(app)), SqliteActivityStore.get(app),
+                        TokenManager.get(app), new File(app.getFilesDir(), "activity_snapshot.json"));
+            }
+        };
+    }
+
+    public LiveData<ActivitySnapshot> snapshot() {
+        return snapshot;
+    }
+
+    public ActivityPager pager() {
+        return pager;
+    }
+
+    // Draws the saved snapshot first, then checks it against the store, and starts paging the history.
+    // Only the first call does anything; a screen re-created after a rotation picks up where it was.
+    public void load() {
+        if (loadStarted) {
+            return;
+        }
+        loadStarted = true;
+        pager.refresh();
+        ioExecutor.execute(() -> {
+            ActivitySnapshot saved = ActivitySnapshot.read(snapshotFile);
+            if (saved != null) {
+                currentSnapshot = saved;
+                snapshot.postValue(saved);
+            }
+            revalidateSnapshot();
+        });
+    }
+
+    // A background sync finished. WorkManager reports the same finished run again to every new
+    // observer, so each run only refreshes the screen once.
+    public void onSyncSucceeded(UUID workId, int saved) {
+        if (handledSyncs.add(workId) && saved > 0) {
+            requestRevalidation();
+            pager.refresh();
+        }
+    }
+
+    private void requestRevalidation() {
+        if (revalidationQueued.compareAndSet(false, true)) {
+            ioExecutor.execute(() -> {
+                revalidationQueued.set(false);
+                revalidateSnapshot();
+            });
+        }
+    }
+
+    // Rebuilds the snapshot from the store; the screen and the saved file are only updated if it changed
+    private void revalidateSnapshot() {
+        ActivitySnapshot fresh = ActivitySnapshot.of(store);
+        if (fresh.equals(currentSnapshot)) {
+            return;
+        }
+        currentSnapshot = fresh;
+        try {
+            fresh.write(snapshotFile);
+        } catch (IOException e) {
+            Log.w("Startup", "Could not save activity snapshot", e);
+        }
+        snapshot.postValue(fresh);
+    }
+
+    @Override
+    protected void onCleared() {
+        requests.close(); // Cancels the Strava call of a page still loading
+        pager.setListener(null);
+        ioExecutor.shutdownNow();
+        pageExecutor.shutdownNow();
+        remoteExecutor.shutdownNow();
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+}
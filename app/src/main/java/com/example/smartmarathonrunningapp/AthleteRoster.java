@@ -0,0 +1,106 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// The training group a coach follows on this device. Each athlete gets their own token file and
+// activity database, named after the id the coach chose, so nobody's data mixes with anyone else's
+// or with the signed-in athlete's.
+public class AthleteRoster {
+    private static final String PREFS_NAME = "coach_roster";
+    private static final String KEY_ATHLETES = "athletes";
+
+    private static volatile AthleteRoster shared;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+    private final Map<String, CoachSync.Athlete> athletes = new HashMap<>(); // Built on first use
+
+    private AthleteRoster(Context context) {
+        this.context = context.getApplicationContext();
+        prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static AthleteRoster get(Context context) {
+        AthleteRoster roster = shared;
+        if (roster == null) {
+            synchronized (AthleteRoster.class) {
+                roster = shared;
+                if (roster == null) {
+                    roster = new AthleteRoster(context);
+                    shared = roster;
+                }
+            }
+        }
+        return roster;
+    }
+
+    public synchronized boolean isEmpty() {
+        return prefs.getStringSet(KEY_ATHLETES, new TreeSet<>()).isEmpty();
+    }
+
+    // Every athlete in the group, in id order
+    public synchronized List<CoachSync.Athlete> athletes() {
+        List<CoachSync.Athlete> result = new ArrayList<>();
+        for (String id : new TreeSet<>(prefs.getStringSet(KEY_ATHLETES, new TreeSet<>()))) {
+            result.add(athlete(id));
+        }
+        return result;
+    }
+
+    // The athlete with this id, added to the group if new. Their tokens come from their own OAuth
+    // exchange into the returned athlete's TokenManager.
+    public synchronized CoachSync.Athlete add(String id) {
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("Athlete ids name files, so only letters, digits, _ and - are allowed");
+        }
+        Set<String> ids = new TreeSet<>(prefs.getStringSet(KEY_ATHLETES, new TreeSet<>()));
+        if (ids.add(id)) {
+            prefs.edit().putStringSet(KEY_ATHLETES, ids).apply();
+        }
+        return athlete(id);
+    }
+
+    // Drops the athlete with their tokens and synced activities
+    public synchronized void remove(String id) {
+        Set<String> ids = new TreeSet<>(prefs.getStringSet(KEY_ATHLETES, new TreeSet<>()));
+        if (ids.remove(id)) {
+            prefs.edit().putStringSet(KEY_ATHLETES, ids).apply();
+        }
+        CoachSync.Athlete athlete = athletes.remove(id);
+        if (athlete != null) {
+            StravaClient.get(context).removeTokenManager(athlete.tokens); // Or the client keeps it for good
+            athlete.tokens.signOut();
+            ((SqliteActivityStore) athlete.store).close();
+        }
+        context.deleteDatabase(databaseName(id));
+    }
+
+    private CoachSync.Athlete athlete(String id) {
+        CoachSync.Athlete athlete = athletes.get(id);
+        if (athlete == null) {
+            StravaClient client = StravaClient.get(context);
+            TokenManager tokens = new TokenManager(client.api(), new SharedPreferencesTokenStore(context, "strava_tokens_" + id),
+                    TokenManager.CLIENT_ID, TokenManager.CLIENT_SECRET, System::currentTimeMillis);
+            client.addTokenManager(tokens); // So a 401 on this athlete's requests refreshes their token
+            athlete = new CoachSync.Athlete(id, tokens, new SqliteActivityStore(context, databaseName(id)));
+            athletes.put(id, athlete);
+        }
+        return athlete;
+    }
+
+    // Athlete ids name files, so only letters, digits, _ and - are allowed
+    static boolean isValidId(String id) {
+        return id != null && id.matches("[A-Za-z0-9_-]+");
+    }
+
+    static String databaseName(String id) {
+        return "activities_" + id + ".db";
+    }
+}
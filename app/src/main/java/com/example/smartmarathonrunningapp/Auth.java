@@ -1,14 +1,24 @@
 package com.example.smartmarathonrunningapp;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Map;
+
 public class Auth extends AppCompatActivity {
-    private final String redirectUri = "http://localhost/callback"; // Redirect URI for OAuth
+    static final String EXTRA_ATHLETE_ID = "athlete_id"; // Set when a coach connects a group member
+    private static final String STATE_PREFS = "oauth_states"; // Nonce sent as state -> "issuedAt|athleteId"
+    private static final long STATE_MAX_AGE_MILLIS = 10 * 60 * 1000L; // Longer than anyone takes to approve
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private final String redirectUri = "smartmarathon://callback"; // Routed back to this activity by the manifest
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -23,27 +33,97 @@ public class Auth extends AppCompatActivity {
     }
 
     private void initiateOAuth() {
-        String clientId = "136889";
-        String authUrl = "https://www.strava.com/oauth/authorize?client_id=" + clientId
+        String athleteId = getIntent().getStringExtra(EXTRA_ATHLETE_ID);
+        if (athleteId != null && !AthleteRoster.isValidId(athleteId)) {
+            Toast.makeText(this, "Athlete ids may only use letters, digits, _ and -", Toast.LENGTH_SHORT).show();
+            finish();
+            return;
+        }
+        String authUrl = "https://www.strava.com/oauth/authorize?client_id=" + TokenManager.CLIENT_ID
                 + "&redirect_uri=" + Uri.encode(redirectUri)
                 + "&response_type=code"
-                + "&scope=activity:read";
+                + "&scope=activity:read"
+                + "&state=" + newState(athleteId); // Strava hands it back with the code
 
         startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(authUrl)));
+        finish(); // The redirect starts a new Auth, so this one would only sit on the back stack
     }
 
     private void handleRedirect(Uri uri) {
         String code = uri.getQueryParameter("code");
-        if (code != null) {
-            exchangeAuthorizationCodeForTokens();
+        String athleteId = takeState(uri.getQueryParameter("state"));
+        if (athleteId == null) {
+            // Not a request this app started, or one that was already used: never trade its code
+            Log.w("StravaAPI", "Ignoring OAuth redirect with an unknown state");
+            Toast.makeText(this, "Authorization failed: unknown request", Toast.LENGTH_SHORT).show();
+        } else if (code != null) {
+            exchangeAuthorizationCodeForTokens(code, athleteId.isEmpty() ? null : athleteId);
         } else {
             String error = uri.getQueryParameter("error");
             Toast.makeText(this, "Authorization failed: " + error, Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void exchangeAuthorizationCodeForTokens()
+    // A random nonce for one authorization, remembered with the athlete it is for ("" for the
+    // signed-in athlete) so the redirect can be checked and routed. Unused old ones are dropped.
+    private String newState(String athleteId) {
+        SharedPreferences states = getSharedPreferences(STATE_PREFS, MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor editor = states.edit();
+        for (Map.Entry<String, ?> entry : states.getAll().entrySet()) {
+            if (now - issuedAt(String.valueOf(entry.getValue())) > STATE_MAX_AGE_MILLIS) {
+                editor.remove(entry.getKey());
+            }
+        }
+        String state = Long.toHexString(RANDOM.nextLong()) + Long.toHexString(RANDOM.nextLong());
+        editor.putString(state, now + "|" + (athleteId != null ? athleteId : "")).apply();
+        return state;
+    }
+
+    // The athlete a returned state was issued for, or null if this app did not issue it or it has
+    // expired. Each state is good for one redirect only.
+    private String takeState(String state) {
+        if (state == null) {
+            return null;
+        }
+        SharedPreferences states = getSharedPreferences(STATE_PREFS, MODE_PRIVATE);
+        String entry = states.getString(state, null);
+        if (entry == null) {
+            return null;
+        }
+        states.edit().remove(state).apply();
+        if (System.currentTimeMillis() - issuedAt(entry) > STATE_MAX_AGE_MILLIS) {
+            return null;
+        }
+        return entry.substring(entry.indexOf('|') + 1);
+    }
+
+    private static long issuedAt(String entry) {
+        try {
+            return Long.parseLong(entry.substring(0, entry.indexOf('|')));
+        } catch (RuntimeException e) {
+            return 0; // Malformed: treat as expired
+        }
+    }
+
+    // Trades the code for tokens off the main thread, then returns to the main screen. With an
+    // athlete id the tokens belong to that member of the coach's group, not the signed-in athlete.
+    private void exchangeAuthorizationCodeForTokens(String code, String athleteId)
     {
+        TokenManager tokenManager = athleteId != null ? AthleteRoster.get(this).add(athleteId).tokens : TokenManager.get(this);
+        new Thread(() -> {
+            try {
+                tokenManager.exchangeAuthorizationCode(code);
+                ActivitySyncWorker.syncNow(this); // First sync starts while the main screen opens
+                runOnUiThread(() -> {
+                    startActivity(new Intent(this, MainActivity.class));
+                    finish();
+                });
+            } catch (IOException e) {
+                Log.e("StravaAPI", "Token exchange failed: ", e);
+                runOnUiThread(() -> Toast.makeText(this, "Could not connect to Strava", Toast.LENGTH_SHORT).show());
+            }
+        }, "strava-token-exchange").start();
     }
 
 }
@@ -0,0 +1,278 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fastest 1k, 5k, 10k, half and full marathon efforts across the athlete's runs, found in one
+// two-pointer pass over each run's time and distance streams, and race predictions from them.
+// Each distance keeps a leaderboard of the fastest runs (one effort per run) that is updated as
+// new runs sync; a full rebuild spreads the runs over several threads. Rides, swims and walks are
+// never scored, as their efforts are not running efforts.
+public class BestEffortEngine {
+    public static final double[] DISTANCES = {1000, 5000, 10000, 21097.5, 42195}; // Meters
+    public static final int ONE_K = 0;
+    public static final int FIVE_K = 1;
+    public static final int TEN_K = 2;
+    public static final int HALF_MARATHON = 3;
+    public static final int MARATHON = 4;
+    static final int DEFAULT_LEADERBOARD_SIZE = 5;
+    static final double RIEGEL_EXPONENT = 1.06; // Fatigue factor in T2 = T1 * (D2 / D1)^1.06
+    private static final String STREAMS_DIR = "streams";
+
+    private static volatile ActivityStreamStore sharedStreams;
+    private static volatile BestEffortEngine shared;
+
+    // Fastest time over one distance within one run
+    public static class Effort {
+        public final long activityId;
+        public final int distanceIndex;
+        public final double seconds;
+        public final int startSample; // Stream index where the effort starts
+
+        Effort(long activityId, int distanceIndex, double seconds, int startSample) {
+            this.activityId = activityId;
+            this.distanceIndex = distanceIndex;
+            this.seconds = seconds;
+            this.startSample = startSample;
+        }
+    }
+
+    private final int leaderboardSize;
+    // Per distance, every run's effort, fastest first. Runs below the top are kept so a re-synced
+    // run can drop down without losing the one it displaced.
+    private final List<List<Effort>> leaderboards = new ArrayList<>();
+    private final Scratch scratch = new Scratch(); // For addActivity, guarded by this
+
+    public BestEffortEngine() {
+        this(DEFAULT_LEADERBOARD_SIZE);
+    }
+
+    public BestEffortEngine(int leaderboardSize) {
+        if (leaderboardSize < 1) {
+            throw new IllegalArgumentException("Leaderboard size must be positive");
+        }
+        this.leaderboardSize = leaderboardSize;
+        for (int i = 0; i < DISTANCES.length; i++) {
+            leaderboards.add(new ArrayList<>());
+        }
+    }
+
+    // Downloaded streams of the signed-in athlete's runs, in the app's files directory
+    public static ActivityStreamStore streamStore(Context context) {
+        ActivityStreamStore store = sharedStreams;
+        if (store == null) {
+            synchronized (BestEffortEngine.class) {
+                store = sharedStreams;
+                if (store == null) {
+                    store = new ActivityStreamStore(new File(context.getApplicationContext().getFilesDir(), STREAMS_DIR));
+                    sharedStreams = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    // The signed-in athlete's leaderboards, rebuilt from their stored runs on first use. Blocks while
+    // that runs, so call it from a background thread.
+    public static BestEffortEngine get(Context context) throws IOException {
+        BestEffortEngine engine = shared;
+        if (engine == null) {
+            synchronized (BestEffortEngine.class) {
+                engine = shared;
+                if (engine == null) {
+                    engine = new BestEffortEngine();
+                    engine.rebuild(SqliteActivityStore.get(context).loadColumns(), streamStore(context),
+                            Runtime.getRuntime().availableProcessors());
+                    shared = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    // Adds the activity's efforts if it is a run; other types are ignored
+    public void addActivity(Activity activity, ActivityStreamsFile streams) {
+        if (ActivityColumns.isRun(ActivityColumns.typeCode(activity.getType()))) {
+            addActivity(activity.getId(), streams);
+        }
+    }
+
+    // Adds one run's efforts, e.g. right after its streams are downloaded. Adding a run again
+    // replaces its earlier efforts.
+    public synchronized void addActivity(long activityId, ActivityStreamsFile streams) {
+        scratch.compute(streams);
+        merge(activityId, scratch);
+    }
+
+    // Recomputes every leaderboard from the stored streams of the runs in the history, skipping every
+    // other type. Blocks until done.
+    public void rebuild(ActivityColumns history, ActivityStreamStore store, int threads) throws IOException {
+        long[] runIds = new long[history.size()];
+        int runs = 0;
+        for (int row = 0; row < history.size(); row++) {
+            if (ActivityColumns.isRun(history.type(row))) {
+                runIds[runs++] = history.id(row);
+            }
+        }
+        rebuild(Arrays.copyOf(runIds, runs), store, threads);
+    }
+
+    // Recomputes every leaderboard from the stored streams of the given runs, using up to
+    // `threads` threads. Runs without stored streams are skipped. Blocks until done.
+    public void rebuild(final long[] activityIds, final ActivityStreamStore store, int threads) throws IOException {
+        synchronized (this) {
+            for (List<Effort> leaderboard : leaderboards) {
+                leaderboard.clear();
+            }
+        }
+        final AtomicInteger next = new AtomicInteger(); // Runs vary in length, so workers pull one at a time
+        int workers = Math.max(1, Math.min(threads, activityIds.length));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    Scratch own = new Scratch();
+                    for (int i = next.getAndIncrement(); i < activityIds.length; i = next.getAndIncrement()) {
+                        ActivityStreamsFile streams = store.open(activityIds[i]);
+                        if (streams != null) {
+                            own.compute(streams);
+                            synchronized (BestEffortEngine.this) {
+                                merge(activityIds[i], own);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Best-effort rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Best-effort rebuild failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Fastest leaderboardSize runs over one of DISTANCES, fastest first
+    public synchronized List<Effort> leaderboard(int distanceIndex) {
+        List<Effort> leaderboard = leaderboards.get(distanceIndex);
+        return Collections.unmodifiableList(new ArrayList<>(leaderboard.subList(0, Math.min(leaderboardSize, leaderboard.size()))));
+    }
+
+    // Fastest effort over one of DISTANCES, or null if no run was that long
+    public synchronized Effort best(int distanceIndex) {
+        List<Effort> leaderboard = leaderboards.get(distanceIndex);
+        return leaderboard.isEmpty() ? null : leaderboard.get(0);
+    }
+
+    // Riegel prediction for a race distance, from the best effort at the longest distance the athlete
+    // has covered: the closer the effort is to the race, the less the fatigue factor has to stretch.
+    // NaN before any run of 1k or more.
+    public synchronized double predictSeconds(double raceMeters) {
+        for (int i = DISTANCES.length - 1; i >= 0; i--) {
+            Effort effort = best(i);
+            if (effort != null) {
+                return riegel(effort.seconds, DISTANCES[i], raceMeters);
+            }
+        }
+        return Double.NaN;
+    }
+
+    public double predictMarathonSeconds() {
+        return predictSeconds(DISTANCES[MARATHON]);
+    }
+
+    public static double riegel(double seconds, double fromMeters, double toMeters) {
+        return seconds * Math.pow(toMeters / fromMeters, RIEGEL_EXPONENT);
+    }
+
+    // Fastest time for each of DISTANCES within one run, NaN where the run is shorter. time holds
+    // seconds and distance decimeters, as stored by ActivityStreams. For each target the right pointer
+    // walks the run once and the left pointer only follows it, so the whole run costs O(n). The start
+    // of the window is interpolated between samples, so efforts are not rounded up to the next sample.
+    static void bestEfforts(int[] time, int[] distance, int count, double[] seconds, int[] startSamples) {
+        Arrays.fill(seconds, Double.NaN);
+        for (int target = 0; target < DISTANCES.length; target++) {
+            double span = DISTANCES[target] * ActivityStreams.scale(ActivityStreams.DISTANCE);
+            int left = 0;
+            for (int right = 1; right < count; right++) {
+                while (left + 1 < right && distance[right] - distance[left + 1] >= span) {
+                    left++;
+                }
+                if (distance[right] - distance[left] < span) {
+                    continue; // Not far enough yet
+                }
+                // The effort starts where distance[right] - span falls between left and left + 1
+                double startDistance = distance[right] - span;
+                int segment = distance[left + 1] - distance[left];
+                double fraction = segment > 0 ? (startDistance - distance[left]) / segment : 0;
+                double startTime = time[left] + fraction * (time[left + 1] - time[left]);
+                double effort = time[right] - startTime;
+                if (!(effort >= seconds[target])) { // Also true while seconds[target] is NaN
+                    seconds[target] = effort;
+                    startSamples[target] = left;
+                }
+            }
+        }
+    }
+
+    private void merge(long activityId, Scratch efforts) {
+        double[] seconds = efforts.seconds;
+        for (int i = 0; i < DISTANCES.length; i++) {
+            List<Effort> leaderboard = leaderboards.get(i);
+            for (int j = leaderboard.size() - 1; j >= 0; j--) {
+                if (leaderboard.get(j).activityId == activityId) {
+                    leaderboard.remove(j);
+                }
+            }
+            if (Double.isNaN(seconds[i])) {
+                continue;
+            }
+            int position = 0;
+            while (position < leaderboard.size() && leaderboard.get(position).seconds <= seconds[i]) {
+                position++;
+            }
+            leaderboard.add(position, new Effort(activityId, i, seconds[i], efforts.startSamples[i]));
+        }
+    }
+
+    // Decoding buffers and results of one thread, grown to the longest run seen
+    private static class Scratch {
+        private final ActivityStreamsFile.Cursor cursor = new ActivityStreamsFile.Cursor();
+        final double[] seconds = new double[DISTANCES.length];
+        final int[] startSamples = new int[DISTANCES.length];
+        private int[] time = new int[0];
+        private int[] distance = new int[0];
+
+        void compute(ActivityStreamsFile streams) {
+            int count = streams.pointCount();
+            if (!streams.has(ActivityStreams.TIME) || !streams.has(ActivityStreams.DISTANCE) || count < 2) {
+                Arrays.fill(seconds, Double.NaN);
+                return;
+            }
+            if (time.length < count) {
+                time = new int[count];
+                distance = new int[count];
+            }
+            streams.readColumn(ActivityStreams.TIME, time, cursor);
+            streams.readColumn(ActivityStreams.DISTANCE, distance, cursor);
+            bestEfforts(time, distance, count, seconds, startSamples);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smartmarathonrunningapp;
+
+// Stops calling Strava while it is down. After failureThreshold failures in a row the breaker opens
+// and requests fail straight away for openMillis; then one trial request is let through, and its
+// outcome closes the breaker again or reopens it for another openMillis.
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, // Requests go through
+        OPEN, // Requests fail without touching the network
+        HALF_OPEN // One trial request is in flight
+    }
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_OPEN_MILLIS = 30_000;
+
+    private final RateLimitScheduler.Clock clock;
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker() {
+        this(System::currentTimeMillis, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    public CircuitBreaker(RateLimitScheduler.Clock clock, int failureThreshold, long openMillis) {
+        if (failureThreshold < 1 || openMillis < 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive and open time non-negative");
+        }
+        this.clock = clock;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    // Whether a request may go out now. Once the open time is over, the first caller gets the trial.
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && clock.nowMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = clock.nowMillis();
+        }
+    }
+
+    // The trial was cancelled before Strava answered. It tells us nothing, so the breaker goes back
+    // to open with its old open time, and the next request gets a fresh trial.
+    public synchronized void onCancelled() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+import java.util.List;
+
+// The coach's training group: lists the athletes synced on this device and connects new ones, each
+// through their own Strava OAuth under the id the coach types in
+public class CoachActivity extends AppCompatActivity {
+    private TextView rosterTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_coach);
+        rosterTextView = findViewById(R.id.coachRosterTextView);
+        EditText athleteIdEditText = findViewById(R.id.coachAthleteIdEditText);
+        Button connectButton = findViewById(R.id.coachConnectButton);
+        connectButton.setOnClickListener(v -> {
+            // Auth checks the id, and adds the athlete once their tokens come back
+            startActivity(new Intent(this, Auth.class)
+                    .putExtra(Auth.EXTRA_ATHLETE_ID, athleteIdEditText.getText().toString().trim()));
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showRoster();
+    }
+
+    private void showRoster() {
+        List<CoachSync.Athlete> athletes = AthleteRoster.get(this).athletes();
+        if (athletes.isEmpty()) {
+            rosterTextView.setText(R.string.coach_empty);
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (CoachSync.Athlete athlete : athletes) {
+            text.append(athlete.id)
+                    .append(athlete.tokens.hasToken() ? "" : " (not connected)")
+                    .append('\n');
+        }
+        rosterTextView.setText(text);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Incremental sync of a whole training group on one device. Each athlete has their own tokens and
+// store. Up to `concurrency` pages are in flight at once, one per athlete at most, and athletes take
+// turns page by page: after each page an athlete with more to fetch goes to the back of the queue,
+// so one long history cannot starve the others of threads or of the app's shared rate budget.
+public class CoachSync {
+    static final int DEFAULT_CONCURRENCY = 4;
+
+    // One athlete of the group
+    public static class Athlete {
+        public final String id;
+        final TokenManager tokens;
+        final ActivityStore store;
+
+        public Athlete(String id, TokenManager tokens, ActivityStore store) {
+            this.id = id;
+            this.tokens = tokens;
+            this.store = store;
+        }
+    }
+
+    // How a sync went: activities saved per athlete, and the athletes that failed
+    public static class Result {
+        final Map<String, Integer> saved = new LinkedHashMap<>();
+        final Map<String, IOException> failures = new LinkedHashMap<>();
+
+        public int saved(String athleteId) {
+            Integer count = saved.get(athleteId);
+            return count != null ? count : 0;
+        }
+
+        public int totalSaved() {
+            int total = 0;
+            for (int count : saved.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public Map<String, IOException> failures() {
+            return Collections.unmodifiableMap(failures);
+        }
+    }
+
+    private final StravaRepository repository;
+    private final int concurrency;
+
+    public CoachSync(StravaRepository repository) {
+        this(repository, DEFAULT_CONCURRENCY);
+    }
+
+    public CoachSync(StravaRepository repository, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        this.repository = repository;
+        this.concurrency = concurrency;
+    }
+
+    // Syncs every athlete that has connected Strava. A failing athlete is reported in the result and
+    // does not hold up the rest. Blocks until done, so call it from a background thread.
+    public Result syncAll(List<Athlete> athletes) throws IOException {
+        final Turns turns = new Turns();
+        for (Athlete athlete : athletes) {
+            if (athlete.tokens.hasToken()) {
+                turns.add(new AthleteSync(athlete));
+            }
+        }
+        int workers = Math.max(1, Math.min(concurrency, turns.remaining));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    for (AthleteSync next = turns.take(); next != null; next = turns.take()) {
+                        boolean more = false;
+                        try {
+                            more = next.syncPage();
+                        } finally {
+                            turns.finishTurn(next, more); // Even on a crash, so the other workers are not left waiting
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Coach sync interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Coach sync failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return turns.result;
+    }
+
+    // One athlete's progress through an incremental sync
+    private class AthleteSync {
+        final Athlete athlete;
+        long after = -1; // High-water mark, read on the first turn
+        int page = 1;
+        int saved;
+        IOException error;
+
+        AthleteSync(Athlete athlete) {
+            this.athlete = athlete;
+        }
+
+        // Fetches and saves one page; true if the athlete has more to fetch
+        boolean syncPage() {
+            try {
+                if (after < 0) {
+                    after = athlete.store.getHighWaterMark();
+                }
+                int count = repository.syncNewActivitiesPage(athlete.tokens.getAccessToken(), athlete.store, after, page);
+                saved += count;
+                page++;
+                return count == StravaRepository.MAX_PER_PAGE;
+            } catch (IOException e) {
+                error = e;
+                return false;
+            }
+        }
+    }
+
+    // Round-robin queue of athletes waiting for their next page
+    private static class Turns {
+        private final ArrayDeque<AthleteSync> queue = new ArrayDeque<>();
+        final Result result = new Result();
+        int remaining; // Athletes not finished, queued or mid-page
+
+        synchronized void add(AthleteSync sync) {
+            queue.add(sync);
+            remaining++;
+        }
+
+        // The next athlete to fetch a page for, waiting while every unfinished athlete is mid-page;
+        // null once all are done
+        synchronized AthleteSync take() throws InterruptedException {
+            while (queue.isEmpty() && remaining > 0) {
+                wait();
+            }
+            return queue.poll();
+        }
+
+        synchronized void finishTurn(AthleteSync sync, boolean more) {
+            if (more) {
+                queue.add(sync); // Behind everyone who has been waiting
+            } else {
+                remaining--;
+                result.saved.put(sync.athlete.id, sync.saved);
+                if (sync.error != null) {
+                    result.failures.put(sync.athlete.id, sync.error);
+                }
+            }
+            notifyAll();
+        }
+    }
+}
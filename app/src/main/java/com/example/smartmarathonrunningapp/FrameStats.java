@@ -0,0 +1,49 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Frame durations of one screen, kept in Metrics as frame.<screen> with slow and frozen counts.
+// A frame is slow when it misses the display's frame budget and frozen past 700 ms, the same
+// cut-offs Android vitals uses.
+public class FrameStats {
+    static final long FROZEN_FRAME_NANOS = 700_000_000L;
+
+    private final long frameBudgetNanos;
+    private final LatencyHistogram durations;
+    private final AtomicLong slowFrames;
+    private final AtomicLong frozenFrames;
+
+    public FrameStats(String screen, long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+        durations = Metrics.histogram("frame." + screen);
+        slowFrames = Metrics.counter("frame." + screen + ".slow");
+        frozenFrames = Metrics.counter("frame." + screen + ".frozen");
+    }
+
+    // Budget for a display refreshing refreshRate times a second, e.g. 16.7 ms at 60 Hz
+    public static long budgetNanos(float refreshRate) {
+        return (long) (1e9 / (refreshRate > 0 ? refreshRate : 60f));
+    }
+
+    public void record(long frameNanos) {
+        durations.record(frameNanos);
+        if (frameNanos > frameBudgetNanos) {
+            slowFrames.incrementAndGet();
+        }
+        if (frameNanos > FROZEN_FRAME_NANOS) {
+            frozenFrames.incrementAndGet();
+        }
+    }
+
+    public long frameCount() {
+        return durations.count();
+    }
+
+    public long slowFrameCount() {
+        return slowFrames.get();
+    }
+
+    public long frozenFrameCount() {
+        return frozenFrames.get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.smartmarathonrunningapp;
+
+// Parses Strava's ISO-8601 timestamps ("2024-11-06T18:33:54Z") without java.time,
+// which is not available on every API level the app supports
+public final class IsoDates {
+
+    private IsoDates() {
+    }
+
+    // Converts "yyyy-MM-ddTHH:mm:ss" with a "Z" or "+hh:mm" suffix to epoch seconds
+    public static long toEpochSeconds(String iso) {
+        if (iso == null || iso.length() < 19 || iso.charAt(4) != '-' || iso.charAt(7) != '-'
+                || iso.charAt(10) != 'T' || iso.charAt(13) != ':' || iso.charAt(16) != ':') {
+            throw new IllegalArgumentException("Not an ISO-8601 timestamp: " + iso);
+        }
+        int year = digits(iso, 0, 4);
+        int month = digits(iso, 5, 2);
+        int day = digits(iso, 8, 2);
+        int hour = digits(iso, 11, 2);
+        int minute = digits(iso, 14, 2);
+        int second = digits(iso, 17, 2);
+
+        return epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds(iso);
+    }
+
+    // Calendar day (days since 1970-01-01) of a timestamp as written, ignoring any zone suffix
+    public static int epochDayOf(String iso) {
+        if (iso == null || iso.length() < 10 || iso.charAt(4) != '-' || iso.charAt(7) != '-') {
+            throw new IllegalArgumentException("Not an ISO-8601 date: " + iso);
+        }
+        return (int) epochDay(digits(iso, 0, 4), digits(iso, 5, 2), digits(iso, 8, 2));
+    }
+
+    // Epoch day of the Monday starting the ISO week that contains the given epoch day
+    public static int isoWeekStart(int epochDay) {
+        return epochDay - Math.floorMod(epochDay + 3, 7); // 1970-01-01 was a Thursday
+    }
+
+    // Days since 1970-01-01 for a proleptic Gregorian date
+    public static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    // Skips optional fractional seconds and reads the zone offset; no suffix is treated as UTC
+    private static int offsetSeconds(String iso) {
+        int i = 19;
+        if (i < iso.length() && iso.charAt(i) == '.') {
+            i++;
+            while (i < iso.length() && Character.isDigit(iso.charAt(i))) {
+                i++;
+            }
+        }
+        if (i >= iso.length() || iso.charAt(i) == 'Z') {
+            return 0;
+        }
+        char sign = iso.charAt(i);
+        if ((sign != '+' && sign != '-') || iso.length() < i + 6) {
+            throw new IllegalArgumentException("Bad zone offset: " + iso);
+        }
+        int offset = digits(iso, i + 1, 2) * 3600 + digits(iso, i + 4, 2) * 60;
+        return sign == '+' ? offset : -offset;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Not an ISO-8601 timestamp: " + s);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.smartmarathonrunningapp;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.util.Log;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Frame times per screen, main-thread stall stacks and, in debug builds, StrictMode for main-thread
+// disk and network access. Frame durations, slow and frozen counts and stalls all land in Metrics,
+// so list-rendering regressions show up in Metrics.dump() and the debug screen. The stall watchdog
+// only runs while some activity is started, so a backgrounded app does not wake up to poll.
+public final class JankMonitor implements Application.ActivityLifecycleCallbacks {
+    static final String STALLS = "main.stalls";
+
+    private static JankMonitor installed;
+
+    private final Handler frameHandler; // FrameMetrics arrive here, off the main thread
+    private final Map<Activity, Window.OnFrameMetricsAvailableListener> listeners = new HashMap<>(); // Main thread only
+    private final Set<Activity> drawnBefore = new HashSet<>(); // Resumed at least once already; main thread only
+    private final AtomicLong stalls = Metrics.counter(STALLS);
+    private final StallWatchdog watchdog;
+    private int startedActivities; // Main thread only
+
+    private JankMonitor() {
+        HandlerThread frameThread = new HandlerThread("frame-metrics");
+        frameThread.start();
+        frameHandler = new Handler(frameThread.getLooper());
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        watchdog = new StallWatchdog(mainHandler::post, Looper.getMainLooper().getThread(),
+                StallWatchdog.DEFAULT_THRESHOLD_MILLIS, this::onStall);
+    }
+
+    // Starts monitoring every activity of the app; later calls do nothing. Call on the main thread.
+    public static void install(Application application) {
+        if (installed != null) {
+            return;
+        }
+        installed = new JankMonitor();
+        application.registerActivityLifecycleCallbacks(installed);
+
+        if ((application.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .penaltyLog()
+                    .build());
+            StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                    .detectLeakedClosableObjects()
+                    .detectLeakedSqlLiteObjects()
+                    .penaltyLog()
+                    .build());
+        }
+    }
+
+    private void onStall(long blockedMillis, StackTraceElement[] stack) {
+        stalls.incrementAndGet();
+        Throwable trace = new Throwable("Main thread blocked for " + blockedMillis + " ms");
+        trace.setStackTrace(stack);
+        Log.w("Jank", trace.getMessage(), trace);
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        String screen = activity.getClass().getSimpleName();
+        Display display = display(activity);
+        FrameStats stats = new FrameStats(screen, FrameStats.budgetNanos(display != null ? display.getRefreshRate() : 0));
+        // The first frame includes layout inflation. FIRST_DRAW_FRAME flags it from API 26; before
+        // that the first frame after the activity's first resume is skipped instead.
+        final boolean[] skipNext = {Build.VERSION.SDK_INT < Build.VERSION_CODES.O && drawnBefore.add(activity)};
+        Window.OnFrameMetricsAvailableListener listener =
+                (window, frameMetrics, dropCount) -> {
+                    if (skipNext[0]) {
+                        skipNext[0] = false; // Only touched on frameHandler's thread from here on
+                    } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O
+                            || frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 0) {
+                        stats.record(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+                    }
+                };
+        activity.getWindow().addOnFrameMetricsAvailableListener(listener, frameHandler);
+        listeners.put(activity, listener);
+    }
+
+    @SuppressWarnings("deprecation") // getDefaultDisplay() is the only way below API 30
+    private static Display display(Activity activity) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? activity.getDisplay()
+                : activity.getWindowManager().getDefaultDisplay();
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        Window.OnFrameMetricsAvailableListener listener = listeners.remove(activity);
+        if (listener != null) {
+            activity.getWindow().removeOnFrameMetricsAvailableListener(listener);
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        if (++startedActivities == 1) {
+            watchdog.start(); // The app came to the foreground
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        if (--startedActivities == 0) {
+            watchdog.stop(); // Nothing on screen, so nothing a stall could make janky
+        }
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        drawnBefore.remove(activity);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.smartmarathonrunningapp;
+
+import android.app.Application;
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+import java.util.Collections;
+import java.util.List;
+
+// Installs JankMonitor at process start, before the first activity is created
+public class JankMonitorInitializer implements Initializer<Void> {
+    @Override
+    public Void create(@NonNull Context context) {
+        JankMonitor.install((Application) context.getApplicationContext());
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
@@ -1,81 +1,133 @@
 package com.example.smartmarathonrunningapp;
 
-import android.annotation.SuppressLint;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.TextView;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import java.util.List;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 public class MainActivity extends AppCompatActivity {
-    private StravaRepository stravaRepository; // Repository for Strava API interactions
     private TextView activityTextView; // TextView to display the latest activity stats
+    private ActivityViewModel viewModel; // Snapshot and history loads; survives rotation
+    private final ActivityFormatter formatter = new ActivityFormatter(); // Only used on the UI thread
+    private static boolean processFirstContentReported; // Cold-start time is only meaningful once per process
+    private long createdAtMillis; // elapsedRealtime of onCreate
+    private boolean firstContentReported;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtMillis = SystemClock.elapsedRealtime();
         setContentView(R.layout.activity_main); // Set the activity's layout
 
         // Initialize TextView
         activityTextView = findViewById(R.id.activityTextView);
+        activityTextView.setOnLongClickListener(v -> { // Latency metrics, in debug builds
+            MetricsActivity.startIfDebuggable(this);
+            return true;
+        });
+        findViewById(R.id.coachButton).setOnClickListener(v -> startActivity(new Intent(this, CoachActivity.class)));
+
+        // Not connected yet: send the athlete through Strava's OAuth first
+        if (!TokenManager.get(this).hasToken()) {
+            startActivity(new Intent(this, Auth.class));
+            finish();
+            return;
+        }
+
+        viewModel = new ViewModelProvider(this, ActivityViewModel.factory(this)).get(ActivityViewModel.class);
+
+        // Initialize the history list: pages come from the store, and from Strava past its end
+        RecyclerView recyclerView = findViewById(R.id.activityRecyclerView);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        PagedActivityAdapter activityAdapter = new PagedActivityAdapter();
+        activityAdapter.setPager(viewModel.pager());
+        recyclerView.setAdapter(activityAdapter);
+        viewModel.pager().setListener(activityAdapter);
 
-        // Initialize StravaRepository
-        stravaRepository = new StravaRepository();
+        // Draw the saved snapshot first, then the store's; new runs arrive through the background
+        // sync, so opening the screen never waits on the network. After a rotation this only
+        // redraws what the ViewModel already holds.
+        viewModel.snapshot().observe(this, this::showSnapshot);
+        viewModel.load();
+        if (savedInstanceState == null) {
+            ActivitySyncWorker.schedulePeriodic(this);
+            ActivitySyncWorker.syncNow(this);
+        }
+        WorkManager.getInstance(this).getWorkInfosForUniqueWorkLiveData(ActivitySyncWorker.ONE_TIME_WORK_NAME)
+                .observe(this, infos -> {
+                    for (WorkInfo info : infos) {
+                        if (info.getState() == WorkInfo.State.SUCCEEDED) {
+                            viewModel.onSyncSucceeded(info.getId(),
+                                    info.getOutputData().getInt(ActivitySyncWorker.KEY_SAVED, 0));
+                        }
+                    }
+                });
+    }
 
-        // Fetch and display the latest activity
-        fetchLatestActivity();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (viewModel != null) {
+            viewModel.pager().setListener(null); // The adapter holds the RecyclerView, and with it this Activity
+        }
     }
 
-    // Fetches the latest activity using the repository
-    private void fetchLatestActivity() {
-        String accessToken = "8bffe76bc758c88e09f977d902ab4e78324207ed"; // Replace with a dynamically retrieved token
-        stravaRepository.fetchActivities(accessToken, 1, 1, new Callback<List<Activity>>() {
-            @Override
-            public void onResponse(@NonNull Call<List<Activity>> call, @NonNull Response<List<Activity>> response) {
-                if (response.isSuccessful() && response.body() != null && !response.body().isEmpty()) {
-                    Activity lastActivity = response.body().get(0); // Get the latest activity
-                    displayLastRunStats(lastActivity); // Display its stats
-                } else {
-                    Log.e("StravaAPI", "No activities found or failed to fetch: " + response.message());
-                }
-            }
+    private void showSnapshot(ActivitySnapshot snapshot) {
+        if (snapshot.getLatest() != null) {
+            displayLastRunStats(snapshot.getLatest(), snapshot);
+        } else {
+            Log.e("StravaAPI", "No activities found");
+        }
+        reportFirstContent();
+    }
 
-            @Override
-            public void onFailure(@NonNull Call<List<Activity>> call, @NonNull Throwable t) {
-                Log.e("StravaAPI", "API call failed: ", t);
-            }
-        });
+    // Time to first content, from onCreate and, on a cold start, from process start. Also tells the
+    // system the screen is fully drawn, so the launch shows up in startup metrics.
+    private void reportFirstContent() {
+        if (firstContentReported) {
+            return;
+        }
+        firstContentReported = true;
+        long now = SystemClock.elapsedRealtime();
+        String message = "Time to first content: " + (now - createdAtMillis) + " ms from onCreate";
+        if (!processFirstContentReported) {
+            processFirstContentReported = true;
+            message += ", " + (now - Process.getStartElapsedRealtime()) + " ms from process start";
+        }
+        Log.i("Startup", message);
+        reportFullyDrawn();
     }
 
     // Display stats for the latest run
-    private void displayLastRunStats(Activity activity) {
+    private void displayLastRunStats(Activity activity, ActivitySnapshot summary) {
         String stats = "Name: " + activity.getName() +
                 "\nDistance: " + formatDistance(activity.getDistance()) +
                 "\nTime: " + formatTime(activity.getMoving_time()) +
                 "\nType: " + activity.getType() +
-                "\nDate: " + activity.getStart_date();
+                "\nDate: " + activity.getStart_date() +
+                "\n\nRuns: " + summary.getRunCount() +
+                "\nTotal distance: " + formatDistance((float) summary.getRunDistance()) +
+                "\nTotal time: " + formatTime((int) summary.getRunMovingTime());
 
         activityTextView.setText(stats); // Update the TextView with the stats
     }
 
     // Convert meters to kilometers
-    @SuppressLint("DefaultLocale")
     private String formatDistance(float meters) {
-        return String.format("%.2f km", meters / 1000);
+        return formatter.clear().appendDistance(meters).toString();
     }
 
     // Format time in hours, minutes, and seconds
-    @SuppressLint("DefaultLocale")
     private String formatTime(int seconds)
     {
-        int minutes = seconds / 60;
-        int hours = minutes / 60;
-        minutes %= 60;
-        seconds %= 60;
-        return hours > 0 ? String.format("%d hr %d min", hours, minutes) : String.format("%d min %d sec", minutes, seconds);
+        return formatter.clear().appendDuration(seconds).toString();
     }
 }
@@ -0,0 +1,96 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Process-wide latency histograms and counters for the fetch, parse and bind paths. Hot paths keep
+// the histogram in a static field, so recording never touches the registry's map.
+public final class Metrics {
+    // Network, from NetworkMetricsListener
+    public static final String DNS = "net.dns";
+    public static final String CONNECT = "net.connect"; // TCP, including TLS
+    public static final String TLS = "net.tls";
+    public static final String TIME_TO_FIRST_BYTE = "net.ttfb"; // Call start to response headers
+    public static final String SERVER = "net.server"; // Request sent to response headers
+    public static final String CALL = "net.call"; // Whole call, including the body
+    public static final String CALLS = "net.calls";
+    public static final String CALL_FAILURES = "net.failures";
+    public static final String CONNECTIONS_REUSED = "net.connections.reused";
+    public static final String CONNECTIONS_NEW = "net.connections.new";
+    // Tail-latency control, from ResilientCalls
+    public static final String HEDGES = "net.hedges";
+    public static final String RETRIES = "net.retries";
+    public static final String CIRCUIT_REJECTED = "net.circuit.rejected";
+    // Deserialization, from TimedConverterFactory and the streaming parsers
+    public static final String PARSE = "json.parse";
+    // List rows, from MyAdapter
+    public static final String BIND = "ui.bind";
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = HISTOGRAMS.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    public static AtomicLong counter(String name) {
+        AtomicLong counter = COUNTERS.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = COUNTERS.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    // One line per histogram with count, p50/p95/p99 and max in milliseconds, then the counters
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            out.append(entry.getKey())
+                    .append(" n=").append(histogram.count())
+                    .append(" p50=").append(millis(histogram.percentileNanos(50)))
+                    .append(" p95=").append(millis(histogram.percentileNanos(95)))
+                    .append(" p99=").append(millis(histogram.percentileNanos(99)))
+                    .append(" max=").append(millis(histogram.maxNanos()))
+                    .append(" ms\n");
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(COUNTERS).entrySet()) {
+            out.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Zeroes everything; histograms and counters stay registered, so cached references keep working
+    public static void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : COUNTERS.values()) {
+            counter.set(0);
+        }
+    }
+
+    // Three decimals without String.format
+    private static String millis(long nanos) {
+        long micros = nanos / 1000;
+        long fraction = micros % 1000;
+        return micros / 1000 + "." + (fraction < 100 ? fraction < 10 ? "00" : "0" : "") + fraction;
+    }
+}
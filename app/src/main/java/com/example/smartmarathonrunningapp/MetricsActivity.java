@@ -0,0 +1,48 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import androidx.appcompat.app.AppCompatActivity;
+
+// Debug screen with the current latency percentiles and counters from Metrics.dump()
+public class MetricsActivity extends AppCompatActivity {
+    private TextView metricsTextView;
+
+    // Opens the screen in debuggable builds only
+    static void startIfDebuggable(Context context) {
+        if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            context.startActivity(new Intent(context, MetricsActivity.class));
+        }
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        metricsTextView = findViewById(R.id.metricsTextView);
+        Button refreshButton = findViewById(R.id.metricsRefreshButton);
+        Button resetButton = findViewById(R.id.metricsResetButton);
+        refreshButton.setOnClickListener(v -> showMetrics());
+        resetButton.setOnClickListener(v -> {
+            Metrics.reset();
+            showMetrics();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    private void showMetrics() {
+        String dump = Metrics.dump();
+        metricsTextView.setText(dump.isEmpty() ? getString(R.string.metrics_empty) : dump);
+        Log.i("Metrics", dump); // Same numbers for adb logcat
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.smartmarathonrunningapp;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.List;
+import java.util.Objects;
+
+// Adapter for the RecyclerView that binds activity data to the views. New lists are diffed
+// against the current one on a background thread, so only rows that changed are re-bound.
+public class MyAdapter extends RecyclerView.Adapter<MyAdapter.ViewHolder> {
+    // Rows are the same activity when Strava's id matches, and unchanged when every shown field matches
+    static final DiffUtil.ItemCallback<Activity> DIFF_CALLBACK = new DiffUtil.ItemCallback<Activity>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Activity oldItem, @NonNull Activity newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Activity oldItem, @NonNull Activity newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && oldItem.getDistance() == newItem.getDistance()
+                    && oldItem.getMoving_time() == newItem.getMoving_time()
+                    && Objects.equals(oldItem.getType(), newItem.getType())
+                    && Objects.equals(oldItem.getStart_date(), newItem.getStart_date());
+        }
+    };
+
+    private static final LatencyHistogram BIND = Metrics.histogram(Metrics.BIND);
+
+    private final AsyncListDiffer<Activity> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK); // Current list and diffing
+
+    // Default constructor for creating an adapter with an empty list
+    public MyAdapter() {
+        setHasStableIds(true); // Lets RecyclerView keep views and animations across updates
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        // Inflate the layout for each list item
+        View itemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_activity, parent, false);
+
+        return new ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        bind(holder, differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size(); // Return the total number of activities
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId(); // Strava's id is unique and never changes
+    }
+
+    // Replaces the list; the diff runs off the main thread and only changed rows are notified.
+    // The list must not be modified afterwards, so pass a new list for every update.
+    public void updateData(List<Activity> newActivities) {
+        differ.submitList(newActivities);
+    }
+
+    public List<Activity> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    // Binds activity data to the view components; a null activity shows a placeholder row.
+    // The details line is formatted into the holder's own buffer, so binding allocates nothing.
+    static void bind(ViewHolder holder, Activity activity) {
+        long start = System.nanoTime();
+        if (activity == null) {
+            holder.activityNameTextView.setText(R.string.activity_loading);
+            holder.activityDetailsTextView.setText("");
+            BIND.recordSince(start);
+            return;
+        }
+        holder.activityNameTextView.setText(activity.getName());
+        ActivityFormatter details = holder.detailsFormatter.clear()
+                .appendDistance(activity.getDistance())
+                .append(" - ")
+                .appendDuration(activity.getMoving_time())
+                .append(" - ")
+                .appendPace(activity.getDistance(), activity.getMoving_time());
+        holder.activityDetailsTextView.setText(details.buffer(), 0, details.length());
+        BIND.recordSince(start);
+    }
+
+    // ViewHolder class that holds references to the views for each list item
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView activityNameTextView;
+        TextView activityDetailsTextView;
+        // TextView keeps a reference to the chars it shows, so every holder needs its own buffer
+        final ActivityFormatter detailsFormatter = new ActivityFormatter();
+
+        public ViewHolder(View itemView) {
+            super(itemView);
+            activityNameTextView = itemView.findViewById(R.id.activityNameTextView);
+            activityDetailsTextView = itemView.findViewById(R.id.activityDetailsTextView);
+        }
+    }
+}
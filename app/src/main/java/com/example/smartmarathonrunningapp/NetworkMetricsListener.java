@@ -0,0 +1,113 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Times each stage of an OkHttp call into Metrics: DNS, connect, TLS, time to first byte, server
+// time and the whole call. One listener per call, so the timestamps need no synchronization.
+public class NetworkMetricsListener extends EventListener {
+    public static final EventListener.Factory FACTORY = call -> new NetworkMetricsListener();
+
+    private static final LatencyHistogram DNS = Metrics.histogram(Metrics.DNS);
+    private static final LatencyHistogram CONNECT = Metrics.histogram(Metrics.CONNECT);
+    private static final LatencyHistogram TLS = Metrics.histogram(Metrics.TLS);
+    private static final LatencyHistogram TIME_TO_FIRST_BYTE = Metrics.histogram(Metrics.TIME_TO_FIRST_BYTE);
+    private static final LatencyHistogram SERVER = Metrics.histogram(Metrics.SERVER);
+    private static final LatencyHistogram CALL = Metrics.histogram(Metrics.CALL);
+    private static final AtomicLong CALLS = Metrics.counter(Metrics.CALLS);
+    private static final AtomicLong CALL_FAILURES = Metrics.counter(Metrics.CALL_FAILURES);
+    private static final AtomicLong CONNECTIONS_REUSED = Metrics.counter(Metrics.CONNECTIONS_REUSED);
+    private static final AtomicLong CONNECTIONS_NEW = Metrics.counter(Metrics.CONNECTIONS_NEW);
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long tlsStart;
+    private long requestSent; // End of the request headers or body, whichever came last
+    private boolean connected; // This call opened its own connection
+    private boolean firstByteSeen; // Only the first response counts; redirects and 401 retries are not time to first byte
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+        CALLS.incrementAndGet();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        DNS.recordSince(dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        connected = true;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        TLS.recordSince(tlsStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        CONNECT.recordSince(connectStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        (connected ? CONNECTIONS_NEW : CONNECTIONS_REUSED).incrementAndGet();
+        connected = false;
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        requestSent = System.nanoTime();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestSent = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        long now = System.nanoTime();
+        SERVER.record(now - requestSent);
+        if (!firstByteSeen) {
+            firstByteSeen = true;
+            TIME_TO_FIRST_BYTE.record(now - callStart);
+        }
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        CALL.recordSince(callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        CALL_FAILURES.incrementAndGet();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.smartmarathonrunningapp;
+
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+// RecyclerView adapter over an ActivityPager. Rows whose page is not loaded yet show a placeholder
+// and are re-bound when the page arrives. New runs are inserted at the top and older history at the
+// bottom, each with its own range notification, so the list does not jump when either arrives. There
+// are no stable ids: a placeholder has no id of its own until its page loads. The pager must post its callbacks to the main thread, as they arrive while RecyclerView
+// may be in the middle of a layout pass otherwise.
+public class PagedActivityAdapter extends RecyclerView.Adapter<MyAdapter.ViewHolder> implements ActivityPager.Listener {
+    private ActivityPager pager;
+    private int itemCount; // Count RecyclerView was last told about
+
+    public void setPager(ActivityPager pager) {
+        this.pager = pager;
+    }
+
+    @NonNull
+    @Override
+    public MyAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_activity, parent, false);
+        return new MyAdapter.ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull MyAdapter.ViewHolder holder, int position) {
+        MyAdapter.bind(holder, pager.get(position)); // Also prefetches the pages around this row
+    }
+
+    @Override
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    @Override
+    public void onRowsInserted(int position, int count) {
+        itemCount += count;
+        notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRowsRemoved(int position, int count) {
+        itemCount -= count;
+        notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onRowsLoaded(int firstPosition, int count) {
+        notifyItemRangeChanged(firstPosition, count);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        Log.e("StravaAPI", "Loading older activities failed: ", t);
+    }
+}
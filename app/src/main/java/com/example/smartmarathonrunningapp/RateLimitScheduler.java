@@ -0,0 +1,337 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Headers;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Sits under every StravaApiService call and keeps the app inside Strava's 15-minute and daily
+// quotas. Each window is a token bucket refilled at the window boundary and corrected from the
+// X-RateLimit-Limit / X-RateLimit-Usage headers. Waiting requests form a priority queue, so
+// foreground requests always go first. Background requests may only use part of each window,
+// and they are spaced out once half of that share is gone, so the app backs off before a 429.
+public class RateLimitScheduler {
+    public enum Priority {
+        FOREGROUND, // The screen is waiting for it
+        BACKGROUND // History pages and other bulk work
+    }
+
+    public interface Clock {
+        long nowMillis();
+    }
+
+    static final long SHORT_WINDOW_MILLIS = 15 * 60 * 1000L; // Strava resets at :00, :15, :30 and :45
+    static final long DAILY_WINDOW_MILLIS = 24 * 60 * 60 * 1000L; // And at midnight UTC
+    static final int DEFAULT_SHORT_LIMIT = 100; // Strava's default read limits until headers say otherwise
+    static final int DEFAULT_DAILY_LIMIT = 1000;
+    static final double BACKGROUND_SHARE = 0.8; // The rest of each window is kept for the foreground
+    static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private final Clock clock;
+    private final int maxInFlight;
+    private final Window shortWindow = new Window(SHORT_WINDOW_MILLIS, DEFAULT_SHORT_LIMIT);
+    private final Window dailyWindow = new Window(DAILY_WINDOW_MILLIS, DEFAULT_DAILY_LIMIT);
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "strava-rate-limit");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> wakeUp;
+    private long sequence;
+    private int inFlight;
+    private long nextBackgroundAt; // Earliest time the next background request may start when pacing
+
+    public RateLimitScheduler() {
+        this(System::currentTimeMillis, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public RateLimitScheduler(Clock clock, int maxInFlight) {
+        this.clock = clock;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Enqueues the call once the budget allows; the callback sees the response as usual
+    public <T> void enqueue(final Call<T> call, Priority priority, final Callback<T> callback) {
+        submit(new Ticket(priority, call) {
+            @Override
+            void start() {
+                call.enqueue(new Callback<T>() {
+                    @Override
+                    public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                        onFinished(response.code(), response.headers());
+                        callback.onResponse(call, response);
+                    }
+
+                    @Override
+                    public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                        onFinished(0, null);
+                        callback.onFailure(call, t);
+                    }
+                });
+            }
+
+            @Override
+            void abandon() {
+                callback.onFailure(call, new IOException("Canceled"));
+            }
+        });
+    }
+
+    // Blocks until the budget allows, then executes the call on the calling thread
+    public <T> Response<T> execute(Call<T> call, Priority priority) throws IOException {
+        final CountDownLatch granted = new CountDownLatch(1);
+        Ticket ticket = new Ticket(priority, null) {
+            @Override
+            void start() {
+                granted.countDown();
+            }
+        };
+        submit(ticket);
+        try {
+            granted.await();
+        } catch (InterruptedException e) {
+            if (!withdraw(ticket)) {
+                onFinished(0, null); // Granted just before the interrupt: give the slot back
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit budget");
+        }
+        try {
+            Response<T> response = call.execute();
+            onFinished(response.code(), response.headers());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            onFinished(0, null);
+            throw e;
+        }
+    }
+
+    // Requests allowed in the current 15-minute window, as last reported by Strava
+    public synchronized int shortWindowLimit() {
+        return shortWindow.limit;
+    }
+
+    public synchronized int shortWindowUsage() {
+        shortWindow.roll(clock.nowMillis());
+        return shortWindow.used;
+    }
+
+    public synchronized int dailyUsage() {
+        dailyWindow.roll(clock.nowMillis());
+        return dailyWindow.used;
+    }
+
+    // Room for optional extra requests, such as a hedge: nothing is waiting and both windows are still
+    // below the background share, so the extra request never eats into the foreground reserve
+    public synchronized boolean hasSpareBudget() {
+        long now = clock.nowMillis();
+        shortWindow.roll(now);
+        dailyWindow.roll(now);
+        return waiting.isEmpty() && inFlight < maxInFlight
+                && shortWindow.used < shortWindow.backgroundCeiling() && dailyWindow.used < dailyWindow.backgroundCeiling();
+    }
+
+    public synchronized int waitingCount() {
+        return waiting.size();
+    }
+
+    // Re-runs dispatch, e.g. once a window has rolled over
+    void dispatch() {
+        List<Ticket> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = clock.nowMillis();
+            shortWindow.roll(now);
+            dailyWindow.roll(now);
+            while (!waiting.isEmpty()) {
+                Ticket next = waiting.peek();
+                if (next.pendingCall != null && next.pendingCall.isCanceled()) {
+                    waiting.poll();
+                    ready.add(next); // Abandoned below without spending budget
+                    continue;
+                }
+                long delay = inFlight >= maxInFlight ? -1 : delayFor(next.priority, now);
+                if (delay != 0) {
+                    if (delay > 0) {
+                        scheduleWakeUp(delay);
+                    }
+                    break; // The head has the highest priority, so nothing behind it can go either
+                }
+                waiting.poll();
+                shortWindow.used++;
+                dailyWindow.used++;
+                inFlight++;
+                if (next.priority == Priority.BACKGROUND) {
+                    nextBackgroundAt = now + backgroundSpacing(now);
+                }
+                next.admitted = true;
+                ready.add(next);
+            }
+        }
+        for (Ticket ticket : ready) {
+            if (ticket.admitted) {
+                ticket.start();
+            } else {
+                ticket.abandon();
+            }
+        }
+    }
+
+    private void submit(Ticket ticket) {
+        synchronized (this) {
+            ticket.sequence = sequence++;
+            waiting.add(ticket);
+        }
+        dispatch();
+    }
+
+    private synchronized boolean withdraw(Ticket ticket) {
+        return waiting.remove(ticket);
+    }
+
+    // Releases the in-flight slot and folds Strava's view of the quota into the buckets
+    private void onFinished(int code, Headers headers) {
+        synchronized (this) {
+            inFlight--;
+            long now = clock.nowMillis();
+            shortWindow.roll(now);
+            dailyWindow.roll(now);
+            if (headers != null) {
+                applyHeaders(headers.get("X-RateLimit-Limit"), headers.get("X-RateLimit-Usage"));
+            }
+            if (code == 429) {
+                shortWindow.used = Math.max(shortWindow.used, shortWindow.limit); // Nothing more this window
+            }
+        }
+        dispatch();
+    }
+
+    // Both headers hold "short,daily"; usage already counts the request that just finished
+    private void applyHeaders(String limit, String usage) {
+        int[] limits = parsePair(limit);
+        int[] usages = parsePair(usage);
+        if (limits != null) {
+            shortWindow.limit = limits[0];
+            dailyWindow.limit = limits[1];
+        }
+        if (usages != null) {
+            // Requests granted but not yet seen by Strava stay counted locally
+            shortWindow.used = Math.max(shortWindow.used, usages[0] + inFlight);
+            dailyWindow.used = Math.max(dailyWindow.used, usages[1] + inFlight);
+        }
+    }
+
+    // 0 to go now, a positive wait in milliseconds, or -1 to wait for a running request to finish
+    private long delayFor(Priority priority, long now) {
+        long wait = Math.max(shortWindow.waitFor(priority, now), dailyWindow.waitFor(priority, now));
+        if (wait == 0 && priority == Priority.BACKGROUND && now < nextBackgroundAt) {
+            wait = nextBackgroundAt - now;
+        }
+        return wait;
+    }
+
+    // Once half of the background share of the 15-minute window is gone, spread what is left
+    // evenly over the rest of the window instead of bursting into the ceiling
+    private long backgroundSpacing(long now) {
+        int share = shortWindow.backgroundCeiling();
+        if (shortWindow.used * 2 < share) {
+            return 0;
+        }
+        return (shortWindow.end() - now) / Math.max(1, share - shortWindow.used);
+    }
+
+    private void scheduleWakeUp(long delayMillis) {
+        if (wakeUp != null && !wakeUp.isDone() && wakeUp.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) {
+            return; // An earlier wake-up is already pending
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        wakeUp = timer.schedule(this::dispatch, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static int[] parsePair(String header) {
+        if (header == null) {
+            return null;
+        }
+        int comma = header.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            return new int[]{Integer.parseInt(header.substring(0, comma).trim()),
+                    Integer.parseInt(header.substring(comma + 1).trim())};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // One quota window, aligned to multiples of its length since the epoch (UTC)
+    private static class Window {
+        final long length;
+        int limit;
+        int used;
+        long start;
+
+        Window(long length, int limit) {
+            this.length = length;
+            this.limit = limit;
+        }
+
+        void roll(long now) {
+            long aligned = now - Math.floorMod(now, length);
+            if (aligned != start) {
+                start = aligned;
+                used = 0;
+            }
+        }
+
+        long end() {
+            return start + length;
+        }
+
+        int backgroundCeiling() {
+            return (int) (limit * BACKGROUND_SHARE);
+        }
+
+        long waitFor(Priority priority, long now) {
+            int ceiling = priority == Priority.FOREGROUND ? limit : backgroundCeiling();
+            return used < ceiling ? 0 : end() - now;
+        }
+    }
+
+    // A request waiting for budget; ordered by priority, then first come first served
+    private abstract static class Ticket implements Comparable<Ticket> {
+        final Priority priority;
+        final Call<?> pendingCall; // Checked for cancellation before spending budget; null for blocking calls
+        long sequence;
+        boolean admitted;
+
+        Ticket(Priority priority, Call<?> pendingCall) {
+            this.priority = priority;
+            this.pendingCall = pendingCall;
+        }
+
+        abstract void start();
+
+        void abandon() {
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
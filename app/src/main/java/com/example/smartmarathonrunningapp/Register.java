@@ -23,7 +23,7 @@
 //public class Register extends AppCompatActivity {
 //
 //    private static final String CLIENT_ID = "136889";
-//    private static final String CLIENT_SECRET = "965e30fa3ac626ee90d757a1d48d147fc80ed035";
+//    private static final String CLIENT_SECRET = BuildConfig.STRAVA_CLIENT_SECRET;
 //    private static final String REDIRECT_URI = "smartmarathon://register";
 //    private static final String AUTHORIZATION_URL = "https://www.strava.com/oauth/authorize";
 //    private static final int STRAVA_REQUEST_CODE = 100;
@@ -0,0 +1,143 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Collapses identical in-flight requests into one Call. Callers with the same key while a call is
+// running are attached to it and all get its result. Cancelling one caller only detaches that caller;
+// the shared call is cancelled once nobody is waiting for it any more.
+public class RequestCoalescer<T> {
+
+    // Starts the one real call for a key, e.g. through the rate-limit scheduler
+    public interface Starter<T> {
+        void start(Call<T> call, Callback<T> callback);
+    }
+
+    // One caller's view of a shared request
+    public interface Handle {
+        // Stops this caller's callback; others waiting on the same request are not affected
+        void cancel();
+
+        boolean isCanceled();
+    }
+
+    private final Starter<T> starter;
+    private final Map<String, SharedCall> inFlight = new HashMap<>();
+    private int savedRequests; // Callers served by a call that was already running
+
+    public RequestCoalescer(Starter<T> starter) {
+        this.starter = starter;
+    }
+
+    // Attaches the callback to the running call for the key, or starts a new one from newCall
+    public Handle enqueue(String key, Supplier<Call<T>> newCall, Callback<T> callback) {
+        SharedCall shared;
+        boolean start = false;
+        Caller caller;
+        synchronized (this) {
+            shared = inFlight.get(key);
+            if (shared == null) {
+                shared = new SharedCall(key, newCall.get());
+                inFlight.put(key, shared);
+                start = true;
+            } else {
+                savedRequests++;
+            }
+            caller = new Caller(shared, callback);
+            shared.callers.add(caller);
+        }
+        if (start) {
+            starter.start(shared.call, shared);
+        }
+        return caller;
+    }
+
+    // Requests that did not hit the network because an identical one was already in flight
+    public synchronized int savedRequests() {
+        return savedRequests;
+    }
+
+    public synchronized int inFlightCount() {
+        return inFlight.size();
+    }
+
+    // Takes the shared call out of the map and returns the callers still waiting for it
+    private synchronized List<Caller> finish(SharedCall shared) {
+        inFlight.remove(shared.key, shared);
+        List<Caller> callers = new ArrayList<>(shared.callers);
+        shared.callers.clear();
+        return callers;
+    }
+
+    private synchronized boolean detach(Caller caller) {
+        if (caller.canceled) {
+            return false;
+        }
+        caller.canceled = true;
+        SharedCall shared = caller.shared;
+        if (!shared.callers.remove(caller) || !shared.callers.isEmpty()) {
+            return false; // Already answered, or someone else still wants the result
+        }
+        inFlight.remove(shared.key, shared);
+        return true;
+    }
+
+    private class SharedCall implements Callback<T> {
+        final String key;
+        final Call<T> call;
+        final List<Caller> callers = new ArrayList<>();
+
+        SharedCall(String key, Call<T> call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            for (Caller caller : finish(this)) {
+                if (!caller.canceled) {
+                    caller.callback.onResponse(call, response); // Every caller sees the same response
+                }
+            }
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            for (Caller caller : finish(this)) {
+                if (!caller.canceled) {
+                    caller.callback.onFailure(call, t);
+                }
+            }
+        }
+    }
+
+    private class Caller implements Handle {
+        final SharedCall shared;
+        final Callback<T> callback;
+        volatile boolean canceled;
+
+        Caller(SharedCall shared, Callback<T> callback) {
+            this.shared = shared;
+            this.callback = callback;
+        }
+
+        @Override
+        public void cancel() {
+            if (detach(this)) {
+                shared.call.cancel(); // Last caller gone: stop the network request too
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Strava requests made on behalf of one owner, e.g. a ViewModel. Closing the scope cancels every
+// request still in flight, wakes the threads waiting on them and refuses new ones, so a finished
+// screen neither keeps a Call running nor is called back by one.
+public class RequestScope {
+
+    // Starts one callback-style request, e.g. through StravaRepository.fetchActivities
+    public interface Starter<T> {
+        RequestCoalescer.Handle start(Callback<T> callback);
+    }
+
+    private final Set<Pending<?>> pending = new HashSet<>();
+    private boolean closed;
+
+    // Starts the request and blocks until it answers, so call it from a background thread. Throws
+    // InterruptedIOException if the scope is closed or the thread interrupted first.
+    public <T> T await(Starter<T> starter) throws IOException {
+        Pending<T> request = new Pending<>();
+        synchronized (this) {
+            if (closed) {
+                throw new InterruptedIOException("Request scope closed");
+            }
+            pending.add(request);
+        }
+        try {
+            request.attach(starter.start(request));
+            request.done.await();
+        } catch (InterruptedException e) {
+            request.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a request");
+        } finally {
+            synchronized (this) {
+                pending.remove(request);
+            }
+        }
+        return request.result();
+    }
+
+    // Cancels what is in flight; later requests fail straight away
+    public void close() {
+        List<Pending<?>> cancelled;
+        synchronized (this) {
+            closed = true;
+            cancelled = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Pending<?> request : cancelled) {
+            request.cancel();
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized int inFlightCount() {
+        return pending.size();
+    }
+
+    private static class Pending<T> implements Callback<T> {
+        final CountDownLatch done = new CountDownLatch(1);
+        private RequestCoalescer.Handle handle;
+        private boolean finished; // Answered or cancelled; the first of the two wins
+        private boolean canceled;
+        private T body;
+        private IOException error;
+
+        // The handle arrives after the request is registered, so a close in between cancels it here
+        synchronized void attach(RequestCoalescer.Handle handle) {
+            this.handle = handle;
+            if (canceled) {
+                handle.cancel();
+            }
+        }
+
+        void cancel() {
+            RequestCoalescer.Handle toCancel;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                canceled = true;
+                error = new InterruptedIOException("Canceled");
+                toCancel = handle;
+            }
+            if (toCancel != null) {
+                toCancel.cancel(); // Cancels the Call unless another caller still waits on it
+            }
+            done.countDown();
+        }
+
+        synchronized T result() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+            return body;
+        }
+
+        @Override
+        public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (response.isSuccessful() && response.body() != null) {
+                    body = response.body();
+                } else {
+                    error = new IOException("Request failed: HTTP " + response.code());
+                }
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                error = t instanceof IOException ? (IOException) t : new IOException(t);
+            }
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.smartmarathonrunningapp;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Wraps idempotent Strava GETs so one slow or failed request does not leave the screen empty. An
+// attempt that has not answered within the latency budget gets one hedged duplicate, and whichever
+// answers first wins while the other is cancelled. Network errors and 5xx are retried with
+// exponential backoff and full jitter. Every attempt goes through the rate-limit scheduler, hedges
+// are only sent while the window has spare budget, and a shared circuit breaker stops all of it
+// while Strava is down.
+public class ResilientCalls {
+    static final long DEFAULT_HEDGE_AFTER_MILLIS = 1_000; // Well past a normal page, well short of a stall
+    static final int DEFAULT_MAX_ATTEMPTS = 3; // Rounds of attempts, the first included
+    static final long DEFAULT_BASE_BACKOFF_MILLIS = 250;
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = 8_000;
+    static final long NO_HEDGING = Long.MAX_VALUE;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "strava-resilience");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AtomicLong HEDGES = Metrics.counter(Metrics.HEDGES);
+    private static final AtomicLong RETRIES = Metrics.counter(Metrics.RETRIES);
+    private static final AtomicLong REJECTED = Metrics.counter(Metrics.CIRCUIT_REJECTED);
+
+    private final RateLimitScheduler scheduler;
+    private final CircuitBreaker breaker;
+    private final long hedgeAfterMillis;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Random random;
+
+    public ResilientCalls(RateLimitScheduler scheduler) {
+        this(scheduler, new CircuitBreaker(), DEFAULT_HEDGE_AFTER_MILLIS, DEFAULT_MAX_ATTEMPTS,
+                DEFAULT_BASE_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS, new Random());
+    }
+
+    public ResilientCalls(RateLimitScheduler scheduler, CircuitBreaker breaker, long hedgeAfterMillis, int maxAttempts,
+                          long baseBackoffMillis, long maxBackoffMillis, Random random) {
+        if (hedgeAfterMillis < 0 || maxAttempts < 1 || baseBackoffMillis < 0 || maxBackoffMillis < baseBackoffMillis) {
+            throw new IllegalArgumentException("Invalid hedging or retry settings");
+        }
+        this.scheduler = scheduler;
+        this.breaker = breaker;
+        this.hedgeAfterMillis = hedgeAfterMillis;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.random = random;
+    }
+
+    // A call that hedges and retries the given one. Only wrap requests that are safe to repeat.
+    public <T> Call<T> wrap(Call<T> call, RateLimitScheduler.Priority priority) {
+        return new ResilientCall<>(call, priority);
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    // Full jitter: anywhere from 0 to the exponential ceiling for this retry, so clients that failed
+    // together do not come back together
+    long backoffMillis(int retry) {
+        long ceiling = baseBackoffMillis << Math.min(retry - 1, 30);
+        ceiling = Math.min(maxBackoffMillis, ceiling < 0 ? maxBackoffMillis : ceiling);
+        synchronized (random) {
+            return (long) (random.nextDouble() * (ceiling + 1));
+        }
+    }
+
+    // Worth another try: the request never got an answer, or Strava had a passing problem. A 429
+    // is left to the scheduler, which already holds requests until the window resets.
+    static boolean isTransient(int code) {
+        return code >= 500 && code != 501;
+    }
+
+    private class ResilientCall<T> implements Call<T> {
+        private final Call<T> original; // The first attempt; later ones are clones of it
+        private final RateLimitScheduler.Priority priority;
+        private final List<Call<T>> running = new ArrayList<>(); // Attempts of the current round
+        private Callback<T> callback;
+        private boolean executed;
+        private boolean canceled;
+        private boolean delivered;
+        private boolean originalSent; // Attempts after the first are clones of the original
+        private boolean holdsTrial; // Got the breaker's half-open trial and has not reported how it went
+        private int round;
+        private ScheduledFuture<?> timer; // The pending hedge or retry
+        private Response<T> lastResponse; // Failure to report once retries run out
+        private Throwable lastError;
+
+        ResilientCall(Call<T> original, RateLimitScheduler.Priority priority) {
+            this.original = original;
+            this.priority = priority;
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback<T> callback) {
+            synchronized (this) {
+                if (executed) {
+                    throw new IllegalStateException("Already executed");
+                }
+                executed = true;
+                this.callback = callback;
+            }
+            startRound();
+        }
+
+        @NonNull
+        @Override
+        public Response<T> execute() throws IOException {
+            final CountDownLatch done = new CountDownLatch(1);
+            final Object[] outcome = new Object[1];
+            enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    outcome[0] = response;
+                    done.countDown();
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    outcome[0] = t;
+                    done.countDown();
+                }
+            });
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for " + request().url());
+            }
+            if (outcome[0] instanceof Response) {
+                @SuppressWarnings("unchecked")
+                Response<T> response = (Response<T>) outcome[0];
+                return response;
+            }
+            Throwable t = (Throwable) outcome[0];
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw new IOException(t);
+        }
+
+        // Starts the next round with one attempt, and arms the hedge for it
+        private void startRound() {
+            boolean rejected;
+            boolean retrying;
+            synchronized (this) {
+                if (canceled || delivered) {
+                    return;
+                }
+                synchronized (breaker) { // So the state read is the one allowRequest left behind
+                    rejected = !breaker.allowRequest();
+                    holdsTrial = !rejected && breaker.state() == CircuitBreaker.State.HALF_OPEN;
+                }
+                retrying = round > 0;
+                if (!rejected) {
+                    round++;
+                    if (hedgeAfterMillis != NO_HEDGING) {
+                        final int hedgedRound = round;
+                        timer = TIMER.schedule(() -> hedge(hedgedRound), hedgeAfterMillis, TimeUnit.MILLISECONDS);
+                    }
+                }
+            }
+            if (rejected) {
+                REJECTED.incrementAndGet();
+                if (retrying) {
+                    deliverLast(); // The breaker opened on this call's own failures
+                } else {
+                    deliverFailure(new IOException("Strava looks down; not calling it for a while"));
+                }
+                return;
+            }
+            startAttempt();
+        }
+
+        // Sends one duplicate if the round's only attempt is still out and there is budget to spare
+        private void hedge(int hedgedRound) {
+            synchronized (this) {
+                if (canceled || delivered || round != hedgedRound || running.size() != 1
+                        || breaker.state() != CircuitBreaker.State.CLOSED || !scheduler.hasSpareBudget()) {
+                    return;
+                }
+            }
+            HEDGES.incrementAndGet();
+            startAttempt();
+        }
+
+        private void startAttempt() {
+            final Call<T> attempt;
+            final int attemptRound;
+            synchronized (this) {
+                if (canceled || delivered) {
+                    return;
+                }
+                attempt = originalSent ? original.clone() : original;
+                originalSent = true;
+                attemptRound = round;
+                running.add(attempt);
+            }
+            scheduler.enqueue(attempt, priority, new Callback<T>() {
+                @Override
+                public void onResponse(@NonNull Call<T> call, @NonNull Response<T> response) {
+                    if (isTransient(response.code())) {
+                        recordOutcome(false);
+                        attemptFailed(call, attemptRound, response, null);
+                    } else {
+                        recordOutcome(true); // A 4xx is still Strava answering
+                        won(call, response);
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<T> call, @NonNull Throwable t) {
+                    synchronized (ResilientCall.this) {
+                        if (canceled || delivered) {
+                            running.remove(call);
+                            return; // The loser of a hedge, or the whole call was cancelled
+                        }
+                    }
+                    if (call.isCanceled()) {
+                        releaseTrial(); // Cancelled under us: says nothing about Strava
+                    } else {
+                        recordOutcome(false);
+                    }
+                    attemptFailed(call, attemptRound, null, t);
+                }
+            });
+        }
+
+        // First answer of any attempt: report it and cancel the rest
+        private void won(Call<T> call, Response<T> response) {
+            List<Call<T>> losers;
+            synchronized (this) {
+                running.remove(call);
+                if (canceled || delivered) {
+                    return;
+                }
+                delivered = true;
+                losers = new ArrayList<>(running);
+                running.clear();
+                cancelTimer();
+            }
+            for (Call<T> loser : losers) {
+                loser.cancel();
+            }
+            callback.onResponse(this, response);
+        }
+
+        // Waits for the round's other attempt if there is one, otherwise backs off and retries
+        private void attemptFailed(Call<T> call, int attemptRound, Response<T> response, Throwable t) {
+            long delay;
+            synchronized (this) {
+                running.remove(call);
+                if (canceled || delivered) {
+                    return;
+                }
+                if (response != null) {
+                    lastResponse = response;
+                    lastError = null;
+                } else {
+                    lastError = t;
+                }
+                if (!running.isEmpty() || attemptRound != round) {
+                    return;
+                }
+                cancelTimer(); // Its hedge is no use now
+                if (round >= maxAttempts) {
+                    delay = -1;
+                } else {
+                    delay = backoffMillis(round);
+                    timer = TIMER.schedule(this::startRound, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (delay >= 0) {
+                RETRIES.incrementAndGet();
+            } else {
+                deliverLast();
+            }
+        }
+
+        // Out of attempts: the last failing response if there was one, or the last error
+        private void deliverLast() {
+            Response<T> response;
+            Throwable error;
+            synchronized (this) {
+                if (canceled || delivered) {
+                    return;
+                }
+                delivered = true;
+                response = lastResponse;
+                error = lastError;
+            }
+            if (error == null && response != null) {
+                callback.onResponse(this, response);
+            } else {
+                callback.onFailure(this, error != null ? error : new IOException("Request failed"));
+            }
+        }
+
+        private void deliverFailure(Throwable t) {
+            synchronized (this) {
+                if (delivered) {
+                    return;
+                }
+                delivered = true;
+            }
+            callback.onFailure(this, t);
+        }
+
+        private void recordOutcome(boolean success) {
+            synchronized (this) {
+                holdsTrial = false;
+            }
+            if (success) {
+                breaker.onSuccess();
+            } else {
+                breaker.onFailure();
+            }
+        }
+
+        // A trial that ends without an answer must hand the slot back, or the breaker stays half open
+        private void releaseTrial() {
+            boolean release;
+            synchronized (this) {
+                release = holdsTrial;
+                holdsTrial = false;
+            }
+            if (release) {
+                breaker.onCancelled();
+            }
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            List<Call<T>> attempts;
+            boolean notify;
+            synchronized (this) {
+                if (canceled) {
+                    return;
+                }
+                canceled = true;
+                cancelTimer();
+                attempts = new ArrayList<>(running);
+                running.clear();
+                notify = executed && !delivered;
+                delivered = true;
+            }
+            original.cancel(); // Also covers a first attempt still waiting for budget
+            for (Call<T> attempt : attempts) {
+                attempt.cancel();
+            }
+            releaseTrial();
+            if (notify) {
+                callback.onFailure(this, new IOException("Canceled"));
+            }
+        }
+
+        @Override
+        public synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Call<T> clone() {
+            return new ResilientCall<>(original.clone(), priority);
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return original.request();
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return original.timeout();
+        }
+    }
+}
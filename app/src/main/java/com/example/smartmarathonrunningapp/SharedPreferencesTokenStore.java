@@ -0,0 +1,47 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+// TokenStore in the app's private SharedPreferences
+public class SharedPreferencesTokenStore implements TokenStore {
+    private static final String PREFS_NAME = "strava_tokens";
+    private static final String KEY_ACCESS_TOKEN = "access_token";
+    private static final String KEY_REFRESH_TOKEN = "refresh_token";
+    private static final String KEY_EXPIRES_AT = "expires_at";
+
+    private final SharedPreferences prefs;
+
+    public SharedPreferencesTokenStore(Context context) {
+        this(context, PREFS_NAME);
+    }
+
+    // A separate file of tokens, e.g. one per athlete in coach mode
+    public SharedPreferencesTokenStore(Context context, String prefsName) {
+        prefs = context.getApplicationContext().getSharedPreferences(prefsName, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public TokenResponse load() {
+        String accessToken = prefs.getString(KEY_ACCESS_TOKEN, null);
+        String refreshToken = prefs.getString(KEY_REFRESH_TOKEN, null);
+        if (accessToken == null || refreshToken == null) {
+            return null;
+        }
+        return new TokenResponse(accessToken, refreshToken, prefs.getLong(KEY_EXPIRES_AT, 0));
+    }
+
+    @Override
+    public void save(TokenResponse token) {
+        prefs.edit()
+                .putString(KEY_ACCESS_TOKEN, token.getAccessToken())
+                .putString(KEY_REFRESH_TOKEN, token.getRefreshToken())
+                .putLong(KEY_EXPIRES_AT, token.getExpiresAt())
+                .apply();
+    }
+
+    @Override
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+// SQLite-backed ActivityStore; start_epoch is indexed so the newest-first reads and the
+// high-water mark never scan the table. Call from a background thread.
+public class SqliteActivityStore extends SQLiteOpenHelper implements ActivityStore {
+    private static final String DATABASE_NAME = "activities.db";
+    private static final int DATABASE_VERSION = 2; // 2: start_date_local and local_day
+
+    private static final String COLUMNS = "id, name, distance, moving_time, elapsed_time, total_elevation_gain, type, start_date, start_epoch, start_date_local, local_day";
+
+    private static volatile SqliteActivityStore shared;
+
+    // The signed-in athlete's store, opened once for the whole process. The screen and every sync run
+    // share it, so the database is never left open by a run that forgot to close it.
+    public static SqliteActivityStore get(Context context) {
+        SqliteActivityStore store = shared;
+        if (store == null) {
+            synchronized (SqliteActivityStore.class) {
+                store = shared;
+                if (store == null) {
+                    store = new SqliteActivityStore(context);
+                    shared = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    public SqliteActivityStore(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // Separate database file per name, e.g. one per athlete
+    public SqliteActivityStore(Context context, String databaseName) {
+        super(context.getApplicationContext(), databaseName, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE activities ("
+                + "id INTEGER PRIMARY KEY, "
+                + "name TEXT, "
+                + "distance REAL NOT NULL, "
+                + "moving_time INTEGER NOT NULL, "
+                + "elapsed_time INTEGER NOT NULL, "
+                + "total_elevation_gain REAL NOT NULL, "
+                + "type TEXT, "
+                + "start_date TEXT, "
+                + "start_epoch INTEGER NOT NULL, "
+                + "start_date_local TEXT, "
+                + "local_day INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX activities_start_epoch ON activities (start_epoch)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Everything here can be re-synced from Strava
+        db.execSQL("DROP TABLE IF EXISTS activities");
+        onCreate(db);
+    }
+
+    @Override
+    public void saveAll(List<Activity> activities) {
+        if (activities.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement(
+                "INSERT OR REPLACE INTO activities (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (Activity activity : activities) {
+                insert.clearBindings();
+                insert.bindLong(1, activity.getId());
+                bindNullable(insert, 2, activity.getName());
+                insert.bindDouble(3, activity.getDistance());
+                insert.bindLong(4, activity.getMoving_time());
+                insert.bindLong(5, activity.getElapsed_time());
+                insert.bindDouble(6, activity.getTotal_elevation_gain());
+                bindNullable(insert, 7, activity.getType());
+                bindNullable(insert, 8, activity.getStart_date());
+                insert.bindLong(9, activity.getStartEpochSeconds());
+                bindNullable(insert, 10, activity.getStart_date_local());
+                insert.bindLong(11, activity.getLocalDay());
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public long getHighWaterMark() {
+        return DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT IFNULL(MAX(start_epoch), 0) FROM activities", null);
+    }
+
+    @Override
+    public long getLowWaterMark() {
+        return DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT IFNULL(MIN(start_epoch), 0) FROM activities", null);
+    }
+
+    @Override
+    public int countStartedAfter(long epochSeconds) {
+        return (int) DatabaseUtils.longForQuery(getReadableDatabase(),
+                "SELECT COUNT(*) FROM activities WHERE start_epoch > ?", new String[]{String.valueOf(epochSeconds)});
+    }
+
+    @Override
+    public Activity getLatest() {
+        List<Activity> latest = getActivities(1, 0);
+        return latest.isEmpty() ? null : latest.get(0);
+    }
+
+    @Override
+    public List<Activity> getActivities(int limit, int offset) {
+        List<Activity> activities = new ArrayList<>(limit);
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT " + COLUMNS + " FROM activities ORDER BY start_epoch DESC LIMIT ? OFFSET ?",
+                new String[]{String.valueOf(limit), String.valueOf(offset)})) {
+            while (cursor.moveToNext()) {
+                activities.add(fromCursor(cursor));
+            }
+        }
+        return activities;
+    }
+
+    @Override
+    public int count() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), "activities");
+    }
+
+    @Override
+    public ActivityColumns loadColumns() {
+        // Straight from the cursor into the arrays, without an Activity per row
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT id, distance, moving_time, elapsed_time, total_elevation_gain, start_epoch, local_day, type"
+                        + " FROM activities ORDER BY start_epoch ASC", null)) {
+            ActivityColumns columns = new ActivityColumns(cursor.getCount());
+            while (cursor.moveToNext()) {
+                columns.append(cursor.getLong(0), cursor.getFloat(1), cursor.getInt(2), cursor.getInt(3),
+                        cursor.getFloat(4), cursor.getLong(5), cursor.getInt(6), ActivityColumns.typeCode(cursor.getString(7)));
+            }
+            return columns;
+        }
+    }
+
+    private static Activity fromCursor(Cursor cursor) {
+        Activity activity = new Activity();
+        activity.setId(cursor.getLong(0));
+        activity.setName(cursor.getString(1));
+        activity.setDistance(cursor.getFloat(2));
+        activity.setMoving_time(cursor.getInt(3));
+        activity.setElapsed_time(cursor.getInt(4));
+        activity.setTotal_elevation_gain(cursor.getFloat(5));
+        activity.setType(cursor.getString(6));
+        activity.setStart_date(cursor.getString(7));
+        activity.setStart_date_local(cursor.getString(9));
+        activity.setStart(cursor.getLong(8), cursor.getInt(10)); // Already parsed when the row was written
+        return activity;
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Watches the main thread from a background thread: every interval it posts a no-op to the main
+// thread, and if that has not run after thresholdMillis it captures the main thread's stack. Each
+// stall is reported once, while it is still blocking, so the stack shows what is holding it.
+public class StallWatchdog {
+    static final long DEFAULT_THRESHOLD_MILLIS = 500;
+
+    // Called on the watchdog thread
+    public interface Listener {
+        void onStall(long blockedMillis, StackTraceElement[] mainThreadStack);
+    }
+
+    private final Executor mainExecutor;
+    private final Thread mainThread;
+    private final long thresholdMillis;
+    private final Listener listener;
+    private final AtomicLong acknowledged = new AtomicLong(); // Last tick the main thread ran
+    private volatile Thread watcher;
+
+    public StallWatchdog(Executor mainExecutor, Thread mainThread, long thresholdMillis, Listener listener) {
+        this.mainExecutor = mainExecutor;
+        this.mainThread = mainThread;
+        this.thresholdMillis = thresholdMillis;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (watcher != null) {
+            return;
+        }
+        watcher = new Thread(this::watch, "main-stall-watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public synchronized void stop() {
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private void watch() {
+        long tick = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final long sent = ++tick;
+                long sentAt = System.nanoTime();
+                mainExecutor.execute(() -> acknowledged.set(sent));
+                Thread.sleep(thresholdMillis);
+                if (acknowledged.get() < sent) {
+                    long blockedMillis = (System.nanoTime() - sentAt) / 1_000_000;
+                    listener.onStall(blockedMillis, mainThread.getStackTrace());
+                    while (acknowledged.get() < sent) {
+                        Thread.sleep(thresholdMillis / 4 + 1); // Same stall: wait for it to end
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Durations of the process's startup stages, in the order they finished, e.g. how long the
+// pre-warm spent building the HTTP client. Written from any thread.
+public final class StartupTrace {
+    private static final Map<String, Long> STAGE_NANOS = new LinkedHashMap<>();
+
+    private StartupTrace() {
+    }
+
+    // Start of a stage, to pass to end()
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    // Records a stage that started at startNanos and returns its duration in nanoseconds
+    public static long end(String stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        synchronized (STAGE_NANOS) {
+            STAGE_NANOS.put(stage, elapsed);
+        }
+        return elapsed;
+    }
+
+    // Duration of a stage in nanoseconds, or -1 if it has not finished
+    public static long durationNanos(String stage) {
+        synchronized (STAGE_NANOS) {
+            Long nanos = STAGE_NANOS.get(stage);
+            return nanos != null ? nanos : -1;
+        }
+    }
+
+    public static Map<String, Long> stages() {
+        synchronized (STAGE_NANOS) {
+            return new LinkedHashMap<>(STAGE_NANOS);
+        }
+    }
+
+    // "gson 12.3 ms, http-client 40.1 ms, ..." for the log
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Long> stage : stages().entrySet()) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(stage.getKey()).append(' ').append(stage.getValue() / 100_000 / 10.0).append(" ms");
+        }
+        return summary.toString();
+    }
+
+    static void clear() {
+        synchronized (STAGE_NANOS) {
+            STAGE_NANOS.clear();
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.smartmarathonrunningapp;
 import java.util.List;
 import java.util.Map;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.POST;
+import retrofit2.http.Path;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 public interface StravaApiService {
 
     // To fetch the access token using authorization code
@@ -20,4 +24,50 @@ public interface StravaApiService {
             @Query("page") int page,
             @Query("per_page") int perPage
     );
-}
\ No newline at end of file
+
+    // To fetch user activities started inside an epoch-seconds window; a null bound is left out.
+    // With "after" set, Strava returns the oldest activities first.
+    @GET("api/v3/athlete/activities")
+    Call<List<Activity>> getUserActivities(
+            @Header("Authorization") String accessToken,
+            @Query("before") Long before,
+            @Query("after") Long after,
+            @Query("page") int page,
+            @Query("per_page") int perPage
+    );
+
+    // Same page as getUserActivities, but the raw body is handed over unread for streaming parsing
+    @Streaming
+    @GET("api/v3/athlete/activities")
+    Call<ResponseBody> streamUserActivities(
+            @Header("Authorization") String accessToken,
+            @Query("before") Long before,
+            @Query("after") Long after,
+            @Query("page") int page,
+            @Query("per_page") int perPage
+    );
+
+    // Conditional page request for ActivityPageCache: a null validator is left out, and an unchanged
+    // page comes back as an empty 304. The page cache keeps its own copy, so OkHttp's is skipped.
+    @Headers("Cache-Control: no-store")
+    @GET("api/v3/athlete/activities")
+    Call<ResponseBody> getUserActivitiesIfChanged(
+            @Header("Authorization") String accessToken,
+            @Header("If-None-Match") String etag,
+            @Header("If-Modified-Since") String lastModified,
+            @Query("before") Long before,
+            @Query("page") int page,
+            @Query("per_page") int perPage
+    );
+
+    // Per-sample streams of one activity, keyed by type (see ActivityStreams.ALL_KEYS). The body is
+    // handed over unread so the arrays are parsed straight into ints.
+    @Streaming
+    @GET("api/v3/activities/{id}/streams")
+    Call<ResponseBody> streamActivityStreams(
+            @Header("Authorization") String accessToken,
+            @Path("id") long activityId,
+            @Query("keys") String keys,
+            @Query("key_by_type") boolean keyByType
+    );
+}
@@ -0,0 +1,11 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+
+// Strava no longer accepts the athlete's authorization: they are not connected, revoked access, or
+// their refresh token was rejected. Retrying will not help until they go through OAuth again.
+public class StravaAuthException extends IOException {
+    public StravaAuthException(String message) {
+        super(message);
+    }
+}
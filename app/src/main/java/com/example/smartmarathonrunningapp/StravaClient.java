@@ -0,0 +1,168 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+// One OkHttp client, Retrofit instance and StravaApiService for the whole process, so every
+// screen and repository shares the connection pool, TLS sessions and the HTTP cache
+public final class StravaClient {
+    static final String BASE_URL = "https://www.strava.com/"; // Base URL for Strava API
+    static final long CACHE_SIZE_BYTES = 10L * 1024 * 1024;
+    static final int MAX_IDLE_CONNECTIONS = 5;
+    static final long KEEP_ALIVE_MINUTES = 5;
+    static final int MAX_REQUESTS_PER_HOST = 8; // OkHttp's default of 5 would cap parallel page syncs
+
+    private static volatile StravaClient shared;
+
+    private final OkHttpClient httpClient;
+    private final Retrofit retrofit;
+    private final StravaApiService apiService;
+    private final RateLimitScheduler scheduler = new RateLimitScheduler(); // One quota per app, so one scheduler
+    private final ResilientCalls resilience = new ResilientCalls(scheduler); // Hedging, retries and one circuit breaker for Strava
+    private final ActivityPageCache pageCache; // Decoded activity pages, memory and disk
+    private final List<TokenManager> tokenManagers = new CopyOnWriteArrayList<>(); // Consulted when Strava answers 401
+
+    private StravaClient(String baseUrl, OkHttpClient httpClient, File pageCacheDir) {
+        // Same pool, dispatcher and cache. Requests go out with a fresh token, and a 401 is retried
+        // once with a refreshed one.
+        this.httpClient = httpClient.newBuilder()
+                .addInterceptor(chain -> chain.proceed(authorize(chain.request())))
+                .authenticator((route, response) -> reauthenticate(response))
+                .build();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(this.httpClient)
+                .addConverterFactory(new TimedConverterFactory(GsonConverterFactory.create(StravaJson.gson()))) // Converts JSON to Java objects, timed
+                .validateEagerly(true) // Parse every service method now rather than on its first call
+                .build();
+        apiService = retrofit.create(StravaApiService.class);
+        pageCache = new ActivityPageCache(apiService, scheduler, pageCacheDir);
+    }
+
+    // The process-wide client, created on first use with its HTTP cache in the app's cache dir.
+    // StravaClientInitializer normally builds it off the main thread at process start.
+    public static StravaClient get(Context context) {
+        StravaClient client = shared;
+        if (client == null) {
+            synchronized (StravaClient.class) {
+                client = shared;
+                if (client == null) {
+                    File cacheDir = context.getApplicationContext().getCacheDir();
+                    long start = StartupTrace.begin();
+                    OkHttpClient httpClient = newHttpClient(new File(cacheDir, "strava-http"));
+                    StartupTrace.end("http-client", start);
+                    start = StartupTrace.begin();
+                    client = new StravaClient(BASE_URL, httpClient, new File(cacheDir, "activity-pages"));
+                    StartupTrace.end("retrofit", start);
+                    shared = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    // A separate client for another server, e.g. a local mock in tests; its page cache is memory-only
+    static StravaClient create(String baseUrl, OkHttpClient httpClient) {
+        return new StravaClient(baseUrl, httpClient, null);
+    }
+
+    // Tuned OkHttp client; gzip needs no setup, as OkHttp asks for it and unzips transparently
+    // whenever the request does not set its own Accept-Encoding. A null cacheDir means no cache.
+    static OkHttpClient newHttpClient(File cacheDir) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .eventListenerFactory(NetworkMetricsListener.FACTORY) // DNS, connect, TLS and first-byte times
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS);
+        if (cacheDir != null) {
+            builder.cache(new Cache(cacheDir, CACHE_SIZE_BYTES)); // Revalidates with ETag, so unchanged pages come back as 304
+        }
+        return builder.build();
+    }
+
+    public OkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    public Retrofit retrofit() {
+        return retrofit;
+    }
+
+    public StravaApiService api() {
+        return apiService;
+    }
+
+    public RateLimitScheduler scheduler() {
+        return scheduler;
+    }
+
+    public ResilientCalls resilience() {
+        return resilience;
+    }
+
+    public ActivityPageCache pageCache() {
+        return pageCache;
+    }
+
+    // Lets 401s for this manager's tokens be refreshed and retried instead of failing
+    public void addTokenManager(TokenManager tokenManager) {
+        tokenManagers.add(tokenManager);
+    }
+
+    // Stops refreshing for this manager, e.g. once its athlete has left the coach's group
+    public void removeTokenManager(TokenManager tokenManager) {
+        tokenManagers.remove(tokenManager);
+    }
+
+    // Swaps a token that is expiring, or was already replaced, for the manager's current one before
+    // the request is sent, so pages queued before a refresh do not come back as 401
+    private Request authorize(Request request) throws IOException {
+        String authorization = request.header("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return request;
+        }
+        String token = authorization.substring("Bearer ".length());
+        for (TokenManager tokenManager : tokenManagers) {
+            if (tokenManager.owns(token)) {
+                String accessToken = tokenManager.getAccessToken();
+                return accessToken.equals(token) ? request
+                        : request.newBuilder().header("Authorization", "Bearer " + accessToken).build();
+            }
+        }
+        return request;
+    }
+
+    // Retries a request rejected with 401 with the owning manager's new token. Concurrent 401s
+    // share one refresh; a request already retried once is given up on.
+    private Request reauthenticate(Response response) throws IOException {
+        String authorization = response.request().header("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ") || response.priorResponse() != null) {
+            return null;
+        }
+        String rejected = authorization.substring("Bearer ".length());
+        for (TokenManager tokenManager : tokenManagers) {
+            if (tokenManager.owns(rejected)) {
+                String accessToken = tokenManager.refreshAfterUnauthorized(rejected);
+                return response.request().newBuilder()
+                        .header("Authorization", "Bearer " + accessToken)
+                        .build();
+            }
+        }
+        return null;
+    }
+}
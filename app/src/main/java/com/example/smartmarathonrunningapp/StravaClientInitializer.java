@@ -0,0 +1,46 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+import java.util.Collections;
+import java.util.List;
+
+// Pre-warms the networking and JSON stack on a background thread at process start, so the first
+// fetch does not pay for building Gson's adapters, the OkHttp client with its TLS setup, Retrofit's
+// parsed service methods, or the first read of the saved tokens. Stage times go to StartupTrace.
+public class StravaClientInitializer implements Initializer<Void> {
+    static final String THREAD_NAME = "strava-prewarm";
+
+    @Override
+    public Void create(@NonNull Context context) {
+        Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(() -> prewarm(appContext), THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+
+    private static void prewarm(Context context) {
+        long total = StartupTrace.begin();
+        long start = StartupTrace.begin();
+        StravaJson.warmUp();
+        StartupTrace.end("gson", start);
+
+        StravaClient.get(context); // Records http-client and retrofit itself
+
+        start = StartupTrace.begin();
+        TokenManager.get(context); // Loads the saved tokens from SharedPreferences
+        StartupTrace.end("tokens", start);
+
+        StartupTrace.end("prewarm", total);
+        Log.i("Startup", "Pre-warm: " + StartupTrace.summary());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.util.List;
+
+// The app's single Gson instance, with the hand-written adapters for Strava payloads registered
+public final class StravaJson {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Activity.class, new ActivityTypeAdapter())
+            .registerTypeAdapter(TokenResponse.class, new TokenResponseTypeAdapter())
+            .create();
+
+    private StravaJson() {
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    // Resolves and caches the adapters the Strava calls use, so the first response is parsed
+    // without looking them up. Gson keeps them for the life of the process.
+    static void warmUp() {
+        GSON.getAdapter(Activity.class);
+        GSON.getAdapter(TokenResponse.class);
+        GSON.getAdapter(new TypeToken<List<Activity>>() {});
+    }
+}
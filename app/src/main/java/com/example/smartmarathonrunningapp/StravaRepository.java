@@ -1,26 +1,211 @@
 package com.example.smartmarathonrunningapp;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Callback;
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
+import retrofit2.Response;
 
 // Handles API interactions with the Strava API
 public class StravaRepository {
+    static final int MAX_PER_PAGE = 200; // Largest page size Strava accepts for athlete activities
+
     private final StravaApiService apiService; // Retrofit interface for Strava API
+    private final RateLimitScheduler scheduler; // Every call goes through the app's rate-limit budget
+    private final ActivityPageCache pageCache; // Null when pages always come from the network
+    private final ResilientCalls resilience; // Hedges and retries page fetches the screen waits on
+    private final RequestCoalescer<List<Activity>> pageFetches; // Identical page requests share one call
+
+    // Uses the process-wide client and its rate-limit scheduler
+    public StravaRepository(StravaClient client) {
+        this(client.api(), client.scheduler(), client.pageCache(), client.resilience());
+    }
+
+    public StravaRepository(StravaApiService apiService, RateLimitScheduler scheduler, ActivityPageCache pageCache) {
+        this(apiService, scheduler, pageCache, new ResilientCalls(scheduler));
+    }
+
+    public StravaRepository(StravaApiService apiService, RateLimitScheduler scheduler, ActivityPageCache pageCache,
+                            ResilientCalls resilience) {
+        this.apiService = apiService;
+        this.scheduler = scheduler;
+        this.pageCache = pageCache;
+        this.resilience = resilience;
+        pageFetches = new RequestCoalescer<>(Call::enqueue); // Each attempt of the wrapped call goes through the scheduler
+    }
+
+    // Points the repository at another server, e.g. a local mock in tests
+    StravaRepository(String baseUrl) {
+        this(StravaClient.create(baseUrl, StravaClient.newHttpClient(null)));
+    }
+
+    // Fetches activities from the Strava API using a dynamic access token. A request for a page that
+    // is already being fetched joins that call instead of starting another; cancelling the returned
+    // handle only stops this callback. A slow page is hedged and a failed one retried.
+    public RequestCoalescer.Handle fetchActivities(String accessToken, int page, int perPage, Callback<List<Activity>> callback) {
+        return pageFetches.enqueue(accessToken + '|' + page + '|' + perPage,
+                () -> resilience.wrap(apiService.getUserActivities("Bearer " + accessToken, page, perPage),
+                        RateLimitScheduler.Priority.FOREGROUND),
+                callback);
+    }
+
+    // Like fetchActivities, for the activities started before `before` (epoch seconds), newest first,
+    // or the newest ones when it is 0. This is how the list pages back through history, as Strava's
+    // page numbers shift whenever a run is added. With a page cache the request revalidates its copy.
+    public RequestCoalescer.Handle fetchActivitiesBefore(String accessToken, long before, int perPage,
+                                                         Callback<List<Activity>> callback) {
+        return pageFetches.enqueue(accessToken + "|before " + before + '|' + perPage,
+                () -> resilience.wrap(pageCache != null ? pageCache.newCall(accessToken, before, 1, perPage)
+                        : apiService.getUserActivities("Bearer " + accessToken, before > 0 ? before : null, null, 1, perPage),
+                        RateLimitScheduler.Priority.FOREGROUND),
+                callback);
+    }
+
+    // One page of older history for a screen: from the page cache while its copy is fresh, otherwise
+    // requested through the scope, so closing it cancels the request. Blocks, so call it from a
+    // background thread.
+    public List<Activity> getActivitiesBefore(String accessToken, long before, int perPage, RequestScope scope)
+            throws IOException {
+        if (pageCache != null) {
+            List<Activity> fresh = pageCache.getIfFresh(accessToken, before, 1, perPage);
+            if (fresh != null) {
+                return fresh;
+            }
+        }
+        return scope.await(callback -> fetchActivitiesBefore(accessToken, before, perPage, callback));
+    }
+
+    // One page, from the page cache when it is still valid or revalidates with a 304.
+    // Blocks, so call it from a background thread.
+    public List<Activity> getActivitiesPage(String accessToken, int page, int perPage) throws IOException {
+        if (pageCache != null) {
+            return pageCache.getPage(accessToken, page, perPage);
+        }
+        Response<List<Activity>> response = resilience.wrap(
+                apiService.getUserActivities("Bearer " + accessToken, page, perPage), RateLimitScheduler.Priority.FOREGROUND)
+                .execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Activity page " + page + " failed: HTTP " + response.code());
+        }
+        return response.body();
+    }
+
+    // Page fetches answered by joining an identical request that was already in flight
+    public int savedPageRequests() {
+        return pageFetches.savedRequests();
+    }
+
+    // Fetches the athlete's whole history, keeping up to maxConcurrentPages pages of 200 in flight.
+    // Pages reach the listener in order; the returned sync can be cancelled at any time.
+    public ActivityHistorySync syncAllActivities(String accessToken, int maxConcurrentPages, ActivityHistorySync.Listener listener) {
+        ActivityHistorySync sync = new ActivityHistorySync(apiService, scheduler, "Bearer " + accessToken,
+                maxConcurrentPages, listener);
+        sync.start();
+        return sync;
+    }
+
+    // Told about each page an incremental sync has saved, e.g. to fetch what its new runs need next
+    public interface PageListener {
+        void onPageSaved(List<Activity> activities) throws IOException;
+    }
+
+    // Pulls only activities newer than the store's high-water mark and saves them page by page.
+    // A warm store costs a single short request. Blocks, so call it from a background thread.
+    public int syncNewActivities(String accessToken, ActivityStore store) throws IOException {
+        return syncNewActivities(accessToken, store, null);
+    }
+
+    // Same, handing each saved page to the listener (if not null) before the next is requested
+    public int syncNewActivities(String accessToken, ActivityStore store, PageListener listener) throws IOException {
+        long after = store.getHighWaterMark();
+        int saved = 0;
+        for (int page = 1; ; page++) {
+            int count = syncNewActivitiesPage(accessToken, store, after, page, listener);
+            saved += count;
+            if (count < MAX_PER_PAGE) {
+                return saved; // Short page: nothing newer left
+            }
+        }
+    }
+
+    // One page of an incremental sync: the activities after `after` (epoch seconds) on the given page,
+    // saved in one transaction. Returns how many there were; fewer than MAX_PER_PAGE means the sync
+    // is done. Lets callers interleave the pages of several syncs. Blocks, so call it from a background thread.
+    public int syncNewActivitiesPage(String accessToken, ActivityStore store, long after, int page) throws IOException {
+        return syncNewActivitiesPage(accessToken, store, after, page, null);
+    }
+
+    private int syncNewActivitiesPage(String accessToken, ActivityStore store, long after, int page,
+                                      PageListener listener) throws IOException {
+        Response<List<Activity>> response = scheduler.execute(
+                apiService.getUserActivities("Bearer " + accessToken, null, after, page, MAX_PER_PAGE),
+                RateLimitScheduler.Priority.BACKGROUND);
+        if (response.code() == 401) { // Still rejected after the client's refresh and retry
+            throw new StravaAuthException("Incremental sync rejected: HTTP 401");
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Incremental sync failed: HTTP " + response.code());
+        }
+        List<Activity> activities = response.body();
+        if (activities == null || activities.isEmpty()) {
+            return 0;
+        }
+        store.saveAll(activities); // One transaction per page
+        if (listener != null) {
+            listener.onPageSaved(activities);
+        }
+        return activities.size();
+    }
 
-    // Constructor initializes Retrofit
-    public StravaRepository() {
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl("https://www.strava.com/") // Base URL for Strava API
-                .addConverterFactory(GsonConverterFactory.create()) // Converts JSON to Java objects
-                .build();
+    // The activity's streams from the store, downloading and encoding them first if needed. Recorded
+    // streams never change, so a stored file is used as is. Blocks, so call it from a background thread.
+    public ActivityStreamsFile getActivityStreams(String accessToken, long activityId, ActivityStreamStore store) throws IOException {
+        return getActivityStreams(accessToken, activityId, store, RateLimitScheduler.Priority.FOREGROUND);
+    }
 
-        apiService = retrofit.create(StravaApiService.class); // Create API service instance
+    // Same at the given priority, e.g. BACKGROUND for the runs a sync has just saved
+    public ActivityStreamsFile getActivityStreams(String accessToken, long activityId, ActivityStreamStore store,
+                                                  RateLimitScheduler.Priority priority) throws IOException {
+        ActivityStreamsFile stored = store.open(activityId);
+        if (stored != null) {
+            return stored;
+        }
+        Response<ResponseBody> response = scheduler.execute(
+                apiService.streamActivityStreams("Bearer " + accessToken, activityId, ActivityStreams.ALL_KEYS, true),
+                priority);
+        if (!response.isSuccessful()) {
+            ResponseBody errorBody = response.errorBody();
+            if (errorBody != null) {
+                errorBody.close();
+            }
+            throw new IOException("Streams for activity " + activityId + " failed: HTTP " + response.code());
+        }
+        try (ResponseBody body = response.body()) {
+            if (body == null) {
+                throw new IOException("Streams for activity " + activityId + " came back empty");
+            }
+            store.save(activityId, ActivityStreams.read(body.charStream()));
+        }
+        return store.open(activityId);
     }
 
-    // Fetches activities from the Strava API using a dynamic access token
-    public void fetchActivities(String accessToken, int page, int perPage, Callback<List<Activity>> callback) {
-        apiService.getUserActivities("Bearer " + accessToken, page, perPage).enqueue(callback);
+    // Parses a page while it downloads, handing each activity to the consumer as soon as it is read.
+    // Returns the number of activities on the page. Blocks, so call it from a background thread.
+    public int streamActivities(String accessToken, int page, int perPage, Consumer<Activity> consumer) throws IOException {
+        Response<ResponseBody> response = scheduler.execute(
+                apiService.streamUserActivities("Bearer " + accessToken, null, null, page, perPage),
+                RateLimitScheduler.Priority.FOREGROUND);
+        if (!response.isSuccessful()) {
+            ResponseBody errorBody = response.errorBody();
+            if (errorBody != null) {
+                errorBody.close();
+            }
+            throw new IOException("Activity page " + page + " failed: HTTP " + response.code());
+        }
+        try (ResponseBody body = response.body()) {
+            return body != null ? ActivityJsonStream.forEach(body.charStream(), consumer) : 0;
+        }
     }
 }
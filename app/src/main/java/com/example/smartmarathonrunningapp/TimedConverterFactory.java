@@ -0,0 +1,42 @@
+package com.example.smartmarathonrunningapp;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+// Wraps a converter factory so every response body Retrofit deserializes is timed into the
+// json.parse histogram. Bodies are read while they are parsed, so a slow network shows up here too.
+public final class TimedConverterFactory extends Converter.Factory {
+    private static final LatencyHistogram PARSE = Metrics.histogram(Metrics.PARSE);
+
+    private final Converter.Factory delegate;
+
+    public TimedConverterFactory(Converter.Factory delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        Converter<ResponseBody, ?> converter = delegate.responseBodyConverter(type, annotations, retrofit);
+        if (converter == null) {
+            return null;
+        }
+        return body -> {
+            long start = System.nanoTime();
+            try {
+                return converter.convert(body);
+            } finally {
+                PARSE.recordSince(start);
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+}
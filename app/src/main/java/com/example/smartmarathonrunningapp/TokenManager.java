@@ -0,0 +1,228 @@
+package com.example.smartmarathonrunningapp;
+
+import android.content.Context;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import retrofit2.Response;
+
+// Owns the athlete's OAuth tokens. Hands out an access token that is refreshed shortly before
+// expires_at, and makes sure concurrent callers that find it stale, or that got a 401, share a
+// single in-flight oauth/token request instead of each starting their own.
+public class TokenManager {
+    static final String CLIENT_ID = "136889";
+    static final String CLIENT_SECRET = BuildConfig.STRAVA_CLIENT_SECRET; // From local.properties, never committed
+    static final long REFRESH_MARGIN_SECONDS = 5 * 60; // Refresh this long before Strava's expiry
+
+    private static volatile TokenManager shared;
+
+    private final StravaApiService apiService;
+    private final TokenStore store;
+    private final String clientId;
+    private final String clientSecret;
+    private final RateLimitScheduler.Clock clock;
+    private volatile ActivityPageCache pageCache; // Holds this athlete's pages, if any
+
+    private final Object lock = new Object();
+    private TokenResponse current; // Null until the athlete connects Strava
+    private String previousAccessToken; // Still on requests sent just before the last refresh
+    private Refresh refreshing; // The one refresh every caller waits on, if any
+    private int refreshCount;
+
+    public TokenManager(StravaApiService apiService, TokenStore store, String clientId, String clientSecret,
+                        RateLimitScheduler.Clock clock) {
+        this.apiService = apiService;
+        this.store = store;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.clock = clock;
+        current = store.load();
+    }
+
+    // The process-wide manager for the signed-in athlete; 401s on the shared client are retried through it
+    public static TokenManager get(Context context) {
+        TokenManager manager = shared;
+        if (manager == null) {
+            synchronized (TokenManager.class) {
+                manager = shared;
+                if (manager == null) {
+                    StravaClient client = StravaClient.get(context);
+                    manager = new TokenManager(client.api(), new SharedPreferencesTokenStore(context),
+                            CLIENT_ID, CLIENT_SECRET, System::currentTimeMillis);
+                    client.addTokenManager(manager);
+                    manager.setPageCache(client.pageCache());
+                    shared = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    public boolean hasToken() {
+        synchronized (lock) {
+            return current != null;
+        }
+    }
+
+    // A token that is good for at least REFRESH_MARGIN_SECONDS more. Blocks while a refresh runs,
+    // so call it from a background thread.
+    public String getAccessToken() throws IOException {
+        TokenResponse token;
+        synchronized (lock) {
+            token = current;
+        }
+        if (token == null) {
+            throw new StravaAuthException("Strava is not connected");
+        }
+        if (isExpiring(token)) {
+            token = refresh(token);
+        }
+        return token.getAccessToken();
+    }
+
+    // Swaps the code from the OAuth redirect for the athlete's first tokens
+    public void exchangeAuthorizationCode(String code) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        params.put("client_id", clientId);
+        params.put("client_secret", clientSecret);
+        params.put("code", code);
+        params.put("grant_type", "authorization_code");
+        TokenResponse token = requestToken(params);
+        synchronized (lock) {
+            previousAccessToken = null;
+            current = token;
+        }
+        store.save(token);
+    }
+
+    // Cleared when the athlete signs out, so whoever connects next on this device starts without their pages
+    void setPageCache(ActivityPageCache pageCache) {
+        this.pageCache = pageCache;
+    }
+
+    public void signOut() {
+        synchronized (lock) {
+            current = null;
+            previousAccessToken = null;
+        }
+        store.clear();
+        ActivityPageCache cache = pageCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    // Number of oauth/token refresh requests actually sent
+    public int refreshCount() {
+        synchronized (lock) {
+            return refreshCount;
+        }
+    }
+
+    // True if the token was handed out by this manager, now or just before the last refresh
+    boolean owns(String accessToken) {
+        synchronized (lock) {
+            return current != null && (accessToken.equals(current.getAccessToken()) || accessToken.equals(previousAccessToken));
+        }
+    }
+
+    // Called when Strava rejects a token; returns the token to retry with. If another caller
+    // has already replaced the rejected token, that replacement is returned without a new refresh.
+    String refreshAfterUnauthorized(String rejectedAccessToken) throws IOException {
+        TokenResponse token;
+        synchronized (lock) {
+            token = current;
+        }
+        if (token == null) {
+            throw new StravaAuthException("Strava is not connected");
+        }
+        if (!token.getAccessToken().equals(rejectedAccessToken)) {
+            return token.getAccessToken();
+        }
+        return refresh(token).getAccessToken();
+    }
+
+    private boolean isExpiring(TokenResponse token) {
+        return clock.nowMillis() / 1000 >= token.getExpiresAt() - REFRESH_MARGIN_SECONDS;
+    }
+
+    // Replaces the stale token, joining the refresh that is already running if there is one
+    private TokenResponse refresh(TokenResponse stale) throws IOException {
+        Refresh refresh;
+        boolean leader = false;
+        synchronized (lock) {
+            if (current != stale && current != null) {
+                return current; // Refreshed while this caller was deciding
+            }
+            if (refreshing == null) {
+                refreshing = new Refresh();
+                refreshCount++;
+                leader = true;
+            }
+            refresh = refreshing;
+        }
+        if (leader) {
+            Map<String, String> params = new HashMap<>();
+            params.put("client_id", clientId);
+            params.put("client_secret", clientSecret);
+            params.put("refresh_token", stale.getRefreshToken());
+            params.put("grant_type", "refresh_token");
+            try {
+                TokenResponse fresh = requestToken(params);
+                store.save(fresh);
+                synchronized (lock) {
+                    previousAccessToken = stale.getAccessToken();
+                    current = fresh;
+                    refreshing = null;
+                }
+                refresh.finish(fresh, null);
+            } catch (IOException | RuntimeException e) {
+                synchronized (lock) {
+                    refreshing = null;
+                }
+                refresh.finish(null, e instanceof IOException ? (IOException) e : new IOException(e));
+            }
+        }
+        return refresh.await();
+    }
+
+    private TokenResponse requestToken(Map<String, String> params) throws IOException {
+        Response<TokenResponse> response = apiService.getAccessToken(params).execute();
+        TokenResponse token = response.body();
+        if (response.code() == 400 || response.code() == 401) { // Revoked, or a code or refresh token already used
+            throw new StravaAuthException("Token request rejected: HTTP " + response.code());
+        }
+        if (!response.isSuccessful() || token == null || token.getAccessToken() == null) {
+            throw new IOException("Token request failed: HTTP " + response.code());
+        }
+        return token;
+    }
+
+    // Outcome of one oauth/token refresh, shared by everyone who asked while it ran
+    private static class Refresh {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private TokenResponse token;
+        private IOException error;
+
+        void finish(TokenResponse token, IOException error) {
+            this.token = token;
+            this.error = error;
+            done.countDown();
+        }
+
+        TokenResponse await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for token refresh");
+            }
+            if (error != null) {
+                throw error;
+            }
+            return token;
+        }
+    }
+}
@@ -5,6 +5,12 @@ public class TokenResponse {
     private String refresh_token;
     private long expires_at;
 
+    TokenResponse(String access_token, String refresh_token, long expires_at) {
+        this.access_token = access_token;
+        this.refresh_token = refresh_token;
+        this.expires_at = expires_at;
+    }
+
     public String getAccessToken() {
         return access_token;
     }
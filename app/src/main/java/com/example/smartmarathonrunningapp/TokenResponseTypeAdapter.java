@@ -0,0 +1,59 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+// Streaming adapter for the oauth/token response; the embedded athlete profile is skipped
+public class TokenResponseTypeAdapter extends TypeAdapter<TokenResponse> {
+
+    @Override
+    public TokenResponse read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String accessToken = null;
+        String refreshToken = null;
+        long expiresAt = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "access_token":
+                    accessToken = in.nextString();
+                    break;
+                case "refresh_token":
+                    refreshToken = in.nextString();
+                    break;
+                case "expires_at":
+                    expiresAt = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new TokenResponse(accessToken, refreshToken, expiresAt);
+    }
+
+    @Override
+    public void write(JsonWriter out, TokenResponse token) throws IOException {
+        if (token == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("access_token").value(token.getAccessToken());
+        out.name("refresh_token").value(token.getRefreshToken());
+        out.name("expires_at").value(token.getExpiresAt());
+        out.endObject();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.smartmarathonrunningapp;
+
+// Keeps the athlete's OAuth tokens between app launches
+public interface TokenStore {
+    // The saved tokens, or null if the athlete has not connected Strava yet
+    TokenResponse load();
+
+    void save(TokenResponse token);
+
+    void clear();
+}
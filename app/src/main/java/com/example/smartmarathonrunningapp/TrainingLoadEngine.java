@@ -0,0 +1,181 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Arrays;
+
+// Daily training load with acute (ATL, 7-day) and chronic (CTL, 42-day) exponentially weighted
+// averages and stress balance (TSB = yesterday's CTL - ATL). A new activity on the latest day
+// is O(1); a backfilled activity only recomputes from its own day forward. Only runs are scored:
+// the threshold is a running speed, so a ride would score about five times its real load.
+public class TrainingLoadEngine {
+    public static final int ATL_DAYS = 7;
+    public static final int CTL_DAYS = 42;
+    static final double CLIMB_EQUIVALENT_METERS = 8.0; // Flat meters one meter of climbing is worth
+    static final double DEFAULT_THRESHOLD_SPEED = 1000.0 / 270; // 4:30 per km, in m/s
+
+    private final double thresholdSpeed; // Speed that scores 100 load per hour
+    private final double atlDecay = Math.exp(-1.0 / ATL_DAYS);
+    private final double ctlDecay = Math.exp(-1.0 / CTL_DAYS);
+
+    private int firstDay; // Epoch day of index 0
+    private int days; // Number of days held
+    private double[] load = new double[64];
+    private double[] atl = new double[64];
+    private double[] ctl = new double[64];
+
+    public TrainingLoadEngine() {
+        this(DEFAULT_THRESHOLD_SPEED);
+    }
+
+    public TrainingLoadEngine(double thresholdSpeedMetersPerSecond) {
+        if (thresholdSpeedMetersPerSecond <= 0) {
+            throw new IllegalArgumentException("Threshold speed must be positive");
+        }
+        thresholdSpeed = thresholdSpeedMetersPerSecond;
+    }
+
+    // Stress score of one activity: hours times intensity squared, where intensity compares the
+    // grade-adjusted speed with threshold speed (100 = one hour at threshold)
+    public double activityLoad(float distanceMeters, int movingSeconds, float elevationGainMeters) {
+        if (movingSeconds <= 0) {
+            return 0;
+        }
+        double adjustedSpeed = (distanceMeters + CLIMB_EQUIVALENT_METERS * Math.max(0f, elevationGainMeters)) / movingSeconds;
+        double intensity = adjustedSpeed / thresholdSpeed;
+        return movingSeconds / 3600.0 * intensity * intensity * 100;
+    }
+
+    // Whether activities of this type count towards training load
+    static boolean scores(byte type) {
+        return ActivityColumns.isRun(type);
+    }
+
+    // Adds the activity if it is a run; other types are ignored
+    public void addActivity(Activity activity) {
+        if (!scores(ActivityColumns.typeCode(activity.getType()))) {
+            return;
+        }
+        addActivity(activity.getLocalDay(), activity.getDistance(), activity.getMoving_time(), activity.getTotal_elevation_gain());
+    }
+
+    // Adds one run's load on its local day and updates the series from that day on
+    public void addActivity(int localDay, float distanceMeters, int movingSeconds, float elevationGainMeters) {
+        double activityLoad = activityLoad(distanceMeters, movingSeconds, elevationGainMeters);
+        if (days == 0) {
+            firstDay = localDay;
+        }
+        if (localDay < firstDay) {
+            prependDays(firstDay - localDay);
+        }
+        int index = localDay - firstDay;
+        int previousDays = days;
+        if (index >= days) {
+            ensureCapacity(index + 1);
+            Arrays.fill(load, days, index + 1, 0); // New days start with zero load
+            days = index + 1;
+        }
+        load[index] += activityLoad;
+        // Days appended just now still need their first pass, even if they come before the activity
+        recomputeFrom(Math.min(index, previousDays));
+    }
+
+    // Replaces everything with the runs of the whole history in one pass
+    public void rebuild(ActivityColumns columns) {
+        days = 0;
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int row = 0; row < columns.size(); row++) {
+            if (scores(columns.type(row))) {
+                minDay = Math.min(minDay, columns.localDay(row));
+                maxDay = Math.max(maxDay, columns.localDay(row));
+            }
+        }
+        if (minDay > maxDay) {
+            return; // No runs
+        }
+        firstDay = minDay;
+        days = maxDay - minDay + 1;
+        ensureCapacity(days);
+        Arrays.fill(load, 0, days, 0);
+        for (int row = 0; row < columns.size(); row++) {
+            if (!scores(columns.type(row))) {
+                continue;
+            }
+            load[columns.localDay(row) - firstDay] += activityLoad(columns.distance(row), columns.movingTime(row),
+                    columns.totalElevationGain(row));
+        }
+        recomputeFrom(0);
+    }
+
+    public boolean isEmpty() {
+        return days == 0;
+    }
+
+    public int firstDay() {
+        return firstDay;
+    }
+
+    public int lastDay() {
+        return firstDay + days - 1;
+    }
+
+    // Sum of activity loads on a day
+    public double load(int day) {
+        int index = day - firstDay;
+        return index >= 0 && index < days ? load[index] : 0;
+    }
+
+    // Acute load at the end of a day; days after the last activity keep decaying
+    public double atl(int day) {
+        return valueAt(atl, atlDecay, day);
+    }
+
+    // Chronic load at the end of a day
+    public double ctl(int day) {
+        return valueAt(ctl, ctlDecay, day);
+    }
+
+    // Stress balance going into a day: yesterday's fitness minus yesterday's fatigue
+    public double tsb(int day) {
+        return ctl(day - 1) - atl(day - 1);
+    }
+
+    private double valueAt(double[] series, double decay, int day) {
+        int index = day - firstDay;
+        if (days == 0 || index < 0) {
+            return 0;
+        }
+        if (index < days) {
+            return series[index];
+        }
+        return series[days - 1] * Math.pow(decay, index - (days - 1));
+    }
+
+    private void recomputeFrom(int index) {
+        double previousAtl = index > 0 ? atl[index - 1] : 0;
+        double previousCtl = index > 0 ? ctl[index - 1] : 0;
+        for (int i = index; i < days; i++) {
+            previousAtl = previousAtl * atlDecay + load[i] * (1 - atlDecay);
+            previousCtl = previousCtl * ctlDecay + load[i] * (1 - ctlDecay);
+            atl[i] = previousAtl;
+            ctl[i] = previousCtl;
+        }
+    }
+
+    // Moves the series right to make room for earlier days; everything is recomputed afterwards
+    private void prependDays(int count) {
+        ensureCapacity(days + count);
+        System.arraycopy(load, 0, load, count, days);
+        Arrays.fill(load, 0, count, 0);
+        firstDay -= count;
+        days += count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > load.length) {
+            int newCapacity = Math.max(capacity, load.length * 2);
+            load = Arrays.copyOf(load, newCapacity);
+            atl = Arrays.copyOf(atl, newCapacity);
+            ctl = Arrays.copyOf(ctl, newCapacity);
+        }
+    }
+}
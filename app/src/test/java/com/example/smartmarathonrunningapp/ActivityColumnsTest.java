@@ -0,0 +1,85 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.HttpUrl;
+import org.junit.Test;
+
+public class ActivityColumnsTest {
+
+    @Test
+    public void appendGrowsAndKeepsEveryField() {
+        ActivityColumns columns = new ActivityColumns(1);
+        for (int i = 0; i < 1_000; i++) {
+            columns.append(i, i * 10f, i, i + 5, i / 2f, 1_000L + i, i / 4, i % 2 == 0 ? ActivityColumns.TYPE_RUN : ActivityColumns.TYPE_RIDE);
+        }
+
+        assertEquals(1_000, columns.size());
+        assertEquals(999, columns.id(999));
+        assertEquals(9_990f, columns.distance(999), 0f);
+        assertEquals(1_004, columns.elapsedTime(999));
+        assertEquals(1_999L, columns.startEpochSeconds(999));
+        assertEquals(ActivityColumns.TYPE_RIDE, columns.type(999));
+        assertEquals(2_495_000d, columns.totalDistance(ActivityColumns.TYPE_RUN), 0d); // 10 * (0 + 2 + ... + 998)
+        assertEquals(249_500L, columns.totalMovingTime(ActivityColumns.TYPE_RUN));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readsPastSizeFail() {
+        ActivityColumns columns = new ActivityColumns(8);
+        columns.distance(0);
+    }
+
+    @Test
+    public void appendFromActivityParsesStartDateAndType() {
+        Activity activity = StravaJson.gson().fromJson(StravaFixtures.activityJson(4), Activity.class);
+        ActivityColumns columns = new ActivityColumns();
+        columns.append(activity);
+
+        assertEquals(5, columns.id(0));
+        assertEquals(StravaFixtures.startEpoch(4), columns.startEpochSeconds(0));
+        assertEquals(ActivityColumns.TYPE_RUN, columns.type(0));
+    }
+
+    @Test
+    public void usesFarLessHeapThanActivityList() throws Exception {
+        StravaFixtures.History history = new StravaFixtures.History(10_000, 0);
+        List<Activity> activities = new ArrayList<>(10_000);
+        for (int page = 1; page <= 50; page++) {
+            HttpUrl url = HttpUrl.get("http://localhost/api/v3/athlete/activities?page=" + page + "&per_page=200");
+            ActivityJsonStream.forEach(new StringReader(history.pageJson(url)), activities::add);
+        }
+
+        ActivityColumns columns = new ActivityColumns(activities.size());
+        long listBytes = 0;
+        for (Activity activity : activities) {
+            columns.append(activity);
+            listBytes += 4 + activityBytes(activity); // The list's reference and the object graph behind it
+        }
+
+        assertEquals(10_000, columns.size());
+        assertTrue(listBytes > 3 * columns.heapBytes());
+    }
+
+    // Lower bound on an Activity's retained size on a 64-bit JVM with compressed references and
+    // compact strings: 12-byte header, its fields, and its four strings, each padded to 8 bytes.
+    // Computed rather than measured, so the test does not depend on when the GC runs.
+    private static long activityBytes(Activity activity) {
+        long fields = 8 + 4 * 4 + 4 + 4 * 3 + 8 + 4 + 1; // id, four strings, distance, times and gain, start, day, flag
+        return align(12 + fields) + stringBytes(activity.getName()) + stringBytes(activity.getType())
+                + stringBytes(activity.getStart_date()) + stringBytes(activity.getStart_date_local());
+    }
+
+    // String object plus its Latin-1 byte array
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 24 + align(16 + value.length());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import org.junit.Test;
+
+// Allocation per list-row bind with ActivityFormatter's buffer, which does not depend on the machine.
+// Time per row, and String.format for comparison, are ActivityFormattingBenchmark's job.
+public class ActivityFormatterAllocationTest {
+    private static final int WARMUP_ROWS = 50_000;
+    private static final int MEASURED_ROWS = 100_000;
+
+    private final ActivityFormatter formatter = new ActivityFormatter(Locale.US);
+    private int sink; // Keeps the JIT from dropping the work
+
+    @Test
+    public void formatterBindsRowsWithoutAllocating() {
+        assertTrue(bytesPerRow(this::bindWithFormatter) < 8); // Roughly zero per row, against hundreds for String.format
+    }
+
+    private void bindWithFormatter(int row) {
+        float meters = 3000 + row % 40_000;
+        int seconds = 900 + row % 14_000;
+        formatter.clear().appendDistance(meters).append(" - ").appendDuration(seconds).append(" - ").appendPace(meters, seconds);
+        sink += formatter.length();
+    }
+
+    private interface RowBind {
+        void bind(int row);
+    }
+
+    private static long bytesPerRow(RowBind bind) {
+        for (int row = 0; row < WARMUP_ROWS; row++) {
+            bind.bind(row);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int row = 0; row < MEASURED_ROWS; row++) {
+            bind.bind(row);
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / MEASURED_ROWS;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+
+// ActivityFormatter against the String.format patterns it replaces, in several locales
+public class ActivityFormatterTest {
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("ar", "EG"), Locale.forLanguageTag("hi-IN-u-nu-deva")
+    };
+
+    @Test
+    public void distanceMatchesStringFormat() {
+        Random random = new Random(42);
+        for (Locale locale : LOCALES) {
+            ActivityFormatter formatter = new ActivityFormatter(locale);
+            for (int i = 0; i < 20_000; i++) {
+                float meters = i < 5_000 ? i * 1.25f : random.nextFloat() * 250_000;
+                assertEquals(String.format(locale, "%.2f km", meters / 1000),
+                        formatter.clear().appendDistance(meters).toString());
+            }
+            for (float meters : new float[]{0f, 5f, 1005f, 1125f, 42195f, 99995f, 12345.678f}) {
+                assertEquals(String.format(locale, "%.2f km", meters / 1000),
+                        formatter.clear().appendDistance(meters).toString());
+            }
+        }
+    }
+
+    @Test
+    public void durationMatchesStringFormat() {
+        for (Locale locale : LOCALES) {
+            ActivityFormatter formatter = new ActivityFormatter(locale);
+            for (int seconds = 0; seconds < 30 * 3600; seconds += 7) {
+                int minutes = seconds / 60 % 60;
+                int hours = seconds / 3600;
+                String expected = hours > 0 ? String.format(locale, "%d hr %d min", hours, minutes)
+                        : String.format(locale, "%d min %d sec", minutes, seconds % 60);
+                assertEquals(expected, formatter.clear().appendDuration(seconds).toString());
+            }
+        }
+    }
+
+    @Test
+    public void paceRoundsToTheSecond() {
+        ActivityFormatter formatter = new ActivityFormatter(Locale.US);
+
+        assertEquals("4:30 /km", formatter.clear().appendPace(10_000, 2700).toString());
+        assertEquals("5:16 /km", formatter.clear().appendPace(42_195, 13_333).toString()); // 315.99 s/km
+        assertEquals("12:05 /km", formatter.clear().appendPace(1_000, 725).toString());
+        assertEquals("--:-- /km", formatter.clear().appendPace(0, 600).toString());
+    }
+
+    @Test
+    public void rowTextComposesWithoutSeparators() {
+        ActivityFormatter formatter = new ActivityFormatter(Locale.GERMANY);
+
+        formatter.clear().appendDistance(21_097.5f).append(" - ").appendDuration(5_400).append(" - ").appendPace(21_097.5f, 5_400);
+
+        assertEquals("21,10 km - 1 hr 30 min - 4:16 /km", new String(formatter.buffer(), 0, formatter.length()));
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Full-history sync against a local mock server serving a synthetic 10k-activity history
+public class ActivityHistorySyncTest {
+    private static final int HISTORY_SIZE = 10_000; // 50 full pages of 200
+    private static final long PAGE_DELAY_MS = 40; // Simulated server time per page
+
+    private MockWebServer server;
+    private StravaFixtures.History history;
+    private StravaRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        history = new StravaFixtures.History(HISTORY_SIZE, PAGE_DELAY_MS);
+        server.setDispatcher(history);
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void streamsWholeHistoryInOrder() throws Exception {
+        RecordingListener listener = sync(4);
+
+        assertNull(listener.error);
+        assertEquals(HISTORY_SIZE, listener.total);
+        assertEquals(HISTORY_SIZE, listener.activities.size());
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            assertEquals(HISTORY_SIZE - i, listener.activities.get(i).getId()); // Newest first
+        }
+        for (int i = 0; i < listener.pages.size(); i++) {
+            assertEquals(i + 1, (int) listener.pages.get(i));
+        }
+    }
+
+    @Test
+    public void stopsRequestingPastTheFirstEmptyPage() throws Exception {
+        int concurrency = 4;
+        RecordingListener listener = sync(concurrency);
+
+        // 50 full pages plus the empty page 51 that reveals the end, and at most one window past it
+        assertEquals(HISTORY_SIZE, listener.total);
+        assertTrue(server.getRequestCount() <= 51 + concurrency);
+    }
+
+    @Test
+    public void completesWithShortLastPage() throws Exception {
+        server.setDispatcher(new StravaFixtures.History(450, 0));
+        RecordingListener listener = sync(3);
+
+        assertEquals(450, listener.total);
+        assertEquals(3, listener.pages.size());
+    }
+
+    @Test
+    public void keepsTheRequestedNumberOfPagesInFlight() throws Exception {
+        sync(1);
+        assertEquals(1, history.maxInFlight.get());
+
+        history.maxInFlight.set(0);
+        sync(4);
+        assertEquals(4, history.maxInFlight.get()); // The whole window on the wire, never more
+        // How much faster that makes a sync is HistorySyncBenchmark's job
+    }
+
+    private RecordingListener sync(int concurrency) throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        repository.syncAllActivities("token", concurrency, listener);
+        assertTrue("sync timed out", listener.done.await(30, TimeUnit.SECONDS));
+        return listener;
+    }
+
+    private static class RecordingListener implements ActivityHistorySync.Listener {
+        final List<Activity> activities = new ArrayList<>();
+        final List<Integer> pages = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        int total;
+        Throwable error;
+
+        @Override
+        public void onPage(int page, List<Activity> pageActivities) {
+            pages.add(page);
+            activities.addAll(pageActivities);
+        }
+
+        @Override
+        public void onComplete(int totalActivities) {
+            total = totalActivities;
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+            done.countDown();
+        }
+    }
+}
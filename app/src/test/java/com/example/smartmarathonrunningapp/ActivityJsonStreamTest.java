@@ -0,0 +1,74 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+// Streaming adapters against a full-size Strava activity page
+public class ActivityJsonStreamTest {
+
+    static Reader fixture(String name) {
+        return new InputStreamReader(ActivityJsonStreamTest.class.getResourceAsStream("/fixtures/" + name),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void streamingMatchesReflectiveGson() throws Exception {
+        List<Activity> reflective = new Gson().fromJson(fixture("activities_page_200.json"),
+                new TypeToken<List<Activity>>() {}.getType());
+        List<Activity> streamed = new ArrayList<>();
+
+        assertEquals(200, ActivityJsonStream.forEach(fixture("activities_page_200.json"), streamed::add));
+
+        assertEquals(reflective.size(), streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            Activity expected = reflective.get(i);
+            Activity actual = streamed.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDistance(), actual.getDistance(), 0f);
+            assertEquals(expected.getMoving_time(), actual.getMoving_time());
+            assertEquals(expected.getElapsed_time(), actual.getElapsed_time());
+            assertEquals(expected.getTotal_elevation_gain(), actual.getTotal_elevation_gain(), 0f);
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getStart_date(), actual.getStart_date());
+        }
+    }
+
+    @Test
+    public void registeredAdapterSkipsUnknownAndNullFields() {
+        Activity activity = StravaJson.gson().fromJson("{\"map\":{\"summary_polyline\":\"abc\",\"x\":[1,[2]]},"
+                + "\"name\":null,\"id\":7,\"start_latlng\":[53.2,-6.1],\"distance\":1000.5}", Activity.class);
+
+        assertEquals(7, activity.getId());
+        assertNull(activity.getName());
+        assertEquals(1000.5f, activity.getDistance(), 0f);
+    }
+
+    @Test
+    public void iteratorStopsAtEndOfEmptyPage() {
+        ActivityJsonStream stream = new ActivityJsonStream(new StringReader("[]"));
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    public void tokenResponseIgnoresAthleteProfile() {
+        TokenResponse token = StravaJson.gson().fromJson("{\"token_type\":\"Bearer\",\"expires_at\":1730000000,"
+                + "\"expires_in\":21600,\"refresh_token\":\"r1\",\"access_token\":\"a1\","
+                + "\"athlete\":{\"id\":1,\"firstname\":\"A\",\"clubs\":[]}}", TokenResponse.class);
+
+        assertEquals("a1", token.getAccessToken());
+        assertEquals("r1", token.getRefreshToken());
+        assertEquals(1730000000L, token.getExpiresAt());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Memory and disk page cache against a local mock server that honours If-None-Match
+public class ActivityPageCacheTest {
+    private static final long MAX_AGE = 60_000;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final StravaFixtures.History history = new StravaFixtures.History(1_000, 0);
+    private MockWebServer server;
+    private StravaClient client;
+    private File diskDir;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String etag = "\"v" + history.size.get() + "\""; // Changes whenever a run is added
+                if (etag.equals(request.getHeader("If-None-Match"))) {
+                    return new MockResponse().setResponseCode(304).setHeader("ETag", etag);
+                }
+                return history.dispatch(request).setHeader("ETag", etag);
+            }
+        });
+        server.start();
+        client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+        diskDir = Files.createTempDirectory("activity-pages").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        cache(diskDir, Long.MAX_VALUE).clear();
+        //noinspection ResultOfMethodCallIgnored
+        diskDir.delete();
+    }
+
+    @Test
+    public void freshPageIsServedWithoutARequest() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+
+        List<Activity> first = cache.getPage("token", 1, 200);
+        List<Activity> second = cache.getPage("token", 1, 200);
+
+        assertSame(first, second); // Same decoded page, no second parse
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    public void stalePageIsRevalidatedAndA304SkipsParsing() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+        List<Activity> first = cache.getPage("token", 1, 200);
+        now.addAndGet(MAX_AGE);
+
+        List<Activity> revalidated = cache.getPage("token", 1, 200);
+
+        assertSame(first, revalidated);
+        server.takeRequest();
+        RecordedRequest conditional = server.takeRequest();
+        assertEquals("\"v1000\"", conditional.getHeader("If-None-Match"));
+        assertEquals(1, cache.revalidationCount());
+        assertEquals(1, cache.notModifiedCount());
+
+        cache.getPage("token", 1, 200); // The 304 made the page fresh again
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    public void changedPageIsDownloadedAgain() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+        cache.getPage("token", 1, 200);
+        history.size.incrementAndGet(); // A new run moves page 1
+        now.addAndGet(MAX_AGE);
+
+        List<Activity> page = cache.getPage("token", 1, 200);
+
+        assertEquals(1_001, page.get(0).getId());
+        assertEquals(1, cache.revalidationCount());
+        assertEquals(0, cache.notModifiedCount());
+    }
+
+    @Test
+    public void olderHistoryForAScreenGoesThroughTheCache() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+        StravaRepository repository = new StravaRepository(client.api(), client.scheduler(), cache);
+        RequestScope scope = new RequestScope();
+        long before = StravaFixtures.startEpoch(500);
+
+        List<Activity> first = repository.getActivitiesBefore("token", before, 200, scope);
+        assertEquals(500, first.get(0).getId()); // Ordinal 499, the newest started before ordinal 500
+        assertSame(first, repository.getActivitiesBefore("token", before, 200, scope));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, cache.hitCount());
+
+        now.addAndGet(MAX_AGE);
+        assertSame(first, repository.getActivitiesBefore("token", before, 200, scope)); // Revalidated
+        assertEquals(2, server.getRequestCount());
+        assertEquals(1, cache.notModifiedCount());
+        assertEquals(0, scope.inFlightCount());
+    }
+
+    @Test
+    public void eachAthleteHasTheirOwnPages() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+        cache.getPage("athlete-a", 1, 200);
+
+        assertNull(cache.getIfFresh("athlete-b", 0, 1, 200));
+        cache.getPage("athlete-b", 1, 200);
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(2, diskDir.list().length);
+        for (String name : diskDir.list()) {
+            assertFalse(name.contains("athlete")); // Hashed, never the token itself
+        }
+    }
+
+    @Test
+    public void signingOutDropsThePages() throws Exception {
+        ActivityPageCache cache = cache(diskDir, Long.MAX_VALUE);
+        TokenManager tokens = new TokenManager(client.api(), new TokenStore() {
+            @Override
+            public TokenResponse load() {
+                return new TokenResponse("token", "refresh", Long.MAX_VALUE / 1000);
+            }
+
+            @Override
+            public void save(TokenResponse token) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        }, "client", "secret", now::get);
+        tokens.setPageCache(cache);
+        cache.getPage("token", 1, 200);
+
+        tokens.signOut();
+
+        assertEquals(0, cache.memoryPageCount());
+        assertEquals(0, diskDir.list().length);
+        assertNull(cache.getIfFresh("token", 0, 1, 200));
+    }
+
+    @Test
+    public void diskTierSurvivesANewCacheInstance() throws Exception {
+        cache(diskDir, Long.MAX_VALUE).getPage("token", 1, 200);
+        ActivityPageCache restarted = cache(diskDir, Long.MAX_VALUE); // As after a process restart
+
+        List<Activity> page = restarted.getPage("token", 1, 200);
+        assertEquals(200, page.size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, restarted.hitCount());
+
+        now.addAndGet(MAX_AGE);
+        restarted = cache(diskDir, Long.MAX_VALUE);
+        restarted.getPage("token", 1, 200); // Stale on disk: revalidated with the stored ETag
+        assertEquals(1, restarted.notModifiedCount());
+    }
+
+    @Test
+    public void memoryTierStaysUnderItsByteBudget() throws Exception {
+        ActivityPageCache sizing = cache(null, Long.MAX_VALUE);
+        sizing.getPage("token", 1, 200);
+        long pageBytes = sizing.memoryBytes();
+
+        ActivityPageCache cache = cache(null, pageBytes * 2 + pageBytes / 2); // Room for two pages
+        for (int page = 1; page <= 4; page++) {
+            cache.getPage("token", page, 200);
+        }
+
+        assertEquals(2, cache.memoryPageCount());
+        assertEquals(2, cache.evictionCount());
+        assertTrue(cache.memoryBytes() <= pageBytes * 2 + pageBytes / 2);
+        int requests = server.getRequestCount();
+        cache.getPage("token", 1, 200); // Evicted and memory-only, so it is a miss again
+        assertEquals(requests + 1, server.getRequestCount());
+        assertEquals(0, diskDir.list().length); // Memory-only caches never touch the disk
+    }
+
+    private ActivityPageCache cache(File dir, long maxMemoryBytes) {
+        return new ActivityPageCache(client.api(), client.scheduler(), dir, maxMemoryBytes,
+                ActivityPageCache.DEFAULT_MAX_DISK_BYTES, MAX_AGE, now::get);
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+// Paging over the local store and a fake Strava history, with both executors run by hand
+public class ActivityPagerTest {
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH = 25;
+    private static final int MAX_PAGES = 4;
+
+    private final ManualExecutor io = new ManualExecutor();
+    private final ManualExecutor main = new ManualExecutor();
+    private final RecordingListener listener = new RecordingListener();
+
+    @Test
+    public void memoryStaysFlatForShortAndLongHistories() {
+        for (int size : new int[]{50, 20_000}) {
+            ActivityPager pager = pager(storeWith(size), null);
+            pager.refresh();
+            drain();
+            assertEquals(size, pager.getItemCount());
+
+            int maxRows = 0;
+            for (int position = 0; position < size; position++) {
+                if (pager.get(position) == null) {
+                    drain();
+                }
+                Activity activity = pager.get(position);
+                assertNotNull(activity);
+                assertEquals(size - position, activity.getId()); // Newest first
+                assertTrue(pager.loadedPageCount() <= MAX_PAGES);
+                maxRows = Math.max(maxRows, pager.loadedRowCount());
+            }
+            assertTrue(maxRows <= MAX_PAGES * PAGE_SIZE);
+        }
+    }
+
+    @Test
+    public void pagesWithinPrefetchDistanceAreLoadedBeforeTheyAreShown() {
+        ActivityPager pager = pager(storeWith(1_000), null);
+        pager.refresh();
+        drain();
+
+        pager.get(PAGE_SIZE - PREFETCH); // Page 1 is now within reach of the screen
+        drain();
+
+        assertNotNull(pager.get(PAGE_SIZE)); // Already there when scrolled to
+        assertTrue(listener.loadedPositions.contains(PAGE_SIZE));
+    }
+
+    @Test
+    public void olderHistoryIsFetchedFromStravaPastTheEndOfTheStore() {
+        InMemoryActivityStore store = new InMemoryActivityStore();
+        FakeRemote remote = new FakeRemote(450);
+        ActivityPager pager = pager(store, remote);
+        pager.refresh();
+        drain();
+        assertEquals(200, pager.getItemCount()); // Empty store: the first Strava page was pulled in
+
+        for (int position = 0; position < pager.getItemCount(); position++) {
+            pager.get(position);
+            drain(); // Lets the Strava fetch near the end land before the loop checks the count
+            assertEquals(450 - position, pager.get(position).getId());
+        }
+
+        assertEquals(450, pager.getItemCount());
+        assertEquals(450, store.count());
+        assertEquals(3, remote.befores.size()); // 200 + 199 + 51 new rows, then no more requests
+        assertEquals(Long.valueOf(0), remote.befores.get(0)); // The newest page
+        // Then everything up to and including the oldest stored run's second
+        assertEquals(Long.valueOf(StravaFixtures.startEpoch(250) + 1), remote.befores.get(1));
+        assertEquals(Long.valueOf(StravaFixtures.startEpoch(51) + 1), remote.befores.get(2));
+        pager.get(449);
+        drain();
+        assertEquals(3, remote.befores.size());
+    }
+
+    @Test
+    public void olderHistoryStopsOnceAFetchAddsNoRows() {
+        FakeRemote remote = new FakeRemote(1_000) {
+            @Override
+            public List<Activity> loadBefore(long before, int perPage) {
+                return super.loadBefore(0, perPage); // A server that ignores "before"
+            }
+        };
+        ActivityPager pager = pager(new InMemoryActivityStore(), remote);
+        pager.refresh();
+        drain();
+        pager.get(199);
+        drain();
+        pager.get(199);
+        drain();
+
+        assertEquals(200, pager.getItemCount());
+        assertEquals(2, remote.befores.size()); // The second full page added nothing, so it stopped there
+    }
+
+    @Test
+    public void newRunsAreInsertedAtTheTopAndOlderHistoryAtTheEnd() {
+        InMemoryActivityStore store = new InMemoryActivityStore();
+        store.saveAll(activities(100, 200));
+        ActivityPager pager = pager(store, new FakeRemote(200));
+        pager.refresh();
+        drain();
+        assertEquals(100, listener.itemCount);
+        assertEquals(Integer.valueOf(0), listener.insertedAt.get(0));
+
+        pager.get(99); // Near the end: the 100 older runs come from Strava
+        drain();
+        assertEquals(200, listener.itemCount);
+        assertEquals(Integer.valueOf(100), listener.insertedAt.get(1));
+
+        store.saveAll(activities(200, 203)); // A sync adds three newer runs
+        pager.refresh();
+        drain();
+        assertEquals(203, listener.itemCount);
+        assertEquals(Integer.valueOf(0), listener.insertedAt.get(2));
+        assertEquals(3, listener.insertedAt.size());
+    }
+
+    @Test
+    public void firstFullSyncInsertsNewerRunsAtTheTopAndOlderOnesAtTheEnd() {
+        InMemoryActivityStore store = new InMemoryActivityStore();
+        store.saveAll(activities(300, 400)); // What an older-history fetch saved before the first sync
+        ActivityPager pager = pager(store, null);
+        pager.refresh();
+        drain();
+        listener.inserts.clear();
+
+        store.saveAll(activities(0, 410)); // The first sync: the whole history, oldest first
+        pager.refresh();
+        drain();
+
+        assertEquals(410, listener.itemCount);
+        assertEquals(2, listener.inserts.size());
+        assertArrayEquals(new int[]{0, 10}, listener.inserts.get(0)); // Ten newer runs above the rows shown
+        assertArrayEquals(new int[]{110, 300}, listener.inserts.get(1)); // The older ones below them
+        assertEquals(410, pager.get(0).getId());
+    }
+
+    @Test
+    public void storedPagesDoNotWaitForAStravaFetch() {
+        ManualExecutor network = new ManualExecutor();
+        ActivityPager pager = new ActivityPager(storeWith(100), new FakeRemote(1_000), PAGE_SIZE, PREFETCH, MAX_PAGES,
+                io, network, main, listener);
+        pager.refresh();
+        drain();
+        assertNull(pager.get(99)); // Page 1 load queued, and the older history past the end of the store
+        assertFalse(network.isEmpty());
+
+        drain(); // The Strava fetch is still on the wire
+
+        assertEquals(1, pager.get(99).getId());
+        assertEquals(100, pager.getItemCount());
+    }
+
+    @Test
+    public void refreshIgnoresLoadsStartedBeforeIt() {
+        InMemoryActivityStore store = storeWith(100);
+        ActivityPager pager = pager(store, null);
+        pager.refresh();
+        drain();
+        assertNull(pager.get(60)); // Page 1 load queued, reading the store before the sync below
+        store.saveAll(activities(100, 101)); // A sync adds one newer run, shifting every row down
+        pager.refresh();
+        drain();
+
+        assertEquals(101, pager.getItemCount());
+        assertEquals(101, pager.get(0).getId());
+        assertEquals(101 - 60, pager.get(60).getId());
+    }
+
+    @Test
+    public void detachedListenerIsNotCalledBackOrKeptAlive() throws Exception {
+        RecordingListener screen = new RecordingListener();
+        ActivityPager pager = new ActivityPager(new InMemoryActivityStore(), new FakeRemote(450), PAGE_SIZE, PREFETCH, MAX_PAGES,
+                io, io, main, screen);
+        pager.refresh();
+        io.runAll(); // The count is read; its result is still waiting for the main thread
+        pager.setListener(null); // The screen finishes, e.g. on a rotation
+        WeakReference<RecordingListener> finished = new WeakReference<>(screen);
+        screen = null;
+        drain(); // Loads started before the detach, including the Strava page, still land in the pager
+
+        for (int i = 0; i < 10 && finished.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(finished.get());
+        assertEquals(200, pager.getItemCount());
+
+        pager.setListener(listener); // The re-created screen
+        assertEquals(200, listener.itemCount);
+        assertEquals(Integer.valueOf(0), listener.insertedAt.get(0));
+    }
+
+    private ActivityPager pager(ActivityStore store, ActivityPager.RemoteSource remote) {
+        return new ActivityPager(store, remote, PAGE_SIZE, PREFETCH, MAX_PAGES, io, io, main, listener);
+    }
+
+    private void drain() {
+        while (!io.isEmpty() || !main.isEmpty()) {
+            io.runAll();
+            main.runAll();
+        }
+    }
+
+    private static InMemoryActivityStore storeWith(int size) {
+        InMemoryActivityStore store = new InMemoryActivityStore();
+        store.saveAll(activities(0, size));
+        return store;
+    }
+
+    // Synthetic activities with ordinals in [from, to); ids are ordinal + 1
+    private static List<Activity> activities(int from, int to) {
+        List<Activity> activities = new ArrayList<>();
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            activities.add(StravaJson.gson().fromJson(StravaFixtures.activityJson(ordinal), Activity.class));
+        }
+        return activities;
+    }
+
+    // Strava's newest-first pages over a fixed history
+    private static class FakeRemote implements ActivityPager.RemoteSource {
+        private final int size;
+        final List<Long> befores = new ArrayList<>(); // One per call
+
+        FakeRemote(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public List<Activity> loadBefore(long before, int perPage) {
+            befores.add(before);
+            int newest = size; // Exclusive upper ordinal of this page
+            if (before > 0) {
+                long spacing = StravaFixtures.START_SPACING_SECONDS;
+                newest = (int) Math.min(size, Math.max(0, (before - StravaFixtures.FIRST_START_EPOCH + spacing - 1) / spacing));
+            }
+            return reversed(activities(Math.max(0, newest - perPage), newest));
+        }
+
+        private static List<Activity> reversed(List<Activity> activities) {
+            List<Activity> result = new ArrayList<>(activities.size());
+            for (int i = activities.size() - 1; i >= 0; i--) {
+                result.add(activities.get(i));
+            }
+            return result;
+        }
+    }
+
+    private static class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queue.add(command);
+        }
+
+        boolean isEmpty() {
+            return queue.isEmpty();
+        }
+
+        void runAll() {
+            Runnable next;
+            while ((next = queue.poll()) != null) {
+                next.run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements ActivityPager.Listener {
+        final List<Integer> loadedPositions = new ArrayList<>();
+        final List<Integer> insertedAt = new ArrayList<>();
+        final List<int[]> inserts = new ArrayList<>(); // {position, count}
+        int itemCount;
+
+        @Override
+        public void onRowsInserted(int position, int count) {
+            insertedAt.add(position);
+            inserts.add(new int[]{position, count});
+            itemCount += count;
+        }
+
+        @Override
+        public void onRowsRemoved(int position, int count) {
+            assertEquals(itemCount - count, position); // Only ever from the end
+            itemCount -= count;
+        }
+
+        @Override
+        public void onRowsLoaded(int firstPosition, int count) {
+            loadedPositions.add(firstPosition);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            throw new AssertionError(t);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// The cold-start snapshot: built from the store, saved, read back, and compared on revalidation
+public class ActivitySnapshotTest {
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("snapshot").toFile();
+        file = new File(dir, "activity_snapshot.json");
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void snapshotRoundTripsThroughTheFile() throws Exception {
+        ActivitySnapshot snapshot = ActivitySnapshot.of(storeWith(30));
+
+        snapshot.write(file);
+        ActivitySnapshot read = ActivitySnapshot.read(file);
+
+        assertEquals(snapshot, read);
+        assertEquals(30, read.getRunCount());
+        assertEquals(30, read.getLatest().getId());
+        assertEquals("Run 29", read.getLatest().getName());
+        assertFalse(new File(dir, "activity_snapshot.json.tmp").exists());
+    }
+
+    @Test
+    public void revalidationOnlySeesAChangeWhenTheStoreChanged() throws Exception {
+        InMemoryActivityStore store = storeWith(30);
+        ActivitySnapshot shown = ActivitySnapshot.of(store);
+
+        assertEquals(shown, ActivitySnapshot.of(store)); // Nothing new: the screen is left alone
+
+        store.saveAll(activities(30, 31));
+        ActivitySnapshot fresh = ActivitySnapshot.of(store);
+        assertNotEquals(shown, fresh);
+        assertEquals(31, fresh.getLatest().getId());
+    }
+
+    @Test
+    public void missingOrDamagedSnapshotIsIgnored() throws Exception {
+        assertNull(ActivitySnapshot.read(file));
+
+        Files.write(file.toPath(), "{\"run_count\":3,\"run_dist".getBytes(StandardCharsets.UTF_8));
+        assertNull(ActivitySnapshot.read(file));
+
+        Files.write(file.toPath(), "{\"run_count\":null}".getBytes(StandardCharsets.UTF_8));
+        assertNull(ActivitySnapshot.read(file));
+    }
+
+    @Test
+    public void emptyStoreGivesAnEmptySnapshot() throws Exception {
+        ActivitySnapshot empty = ActivitySnapshot.of(new InMemoryActivityStore());
+        empty.write(file);
+
+        ActivitySnapshot read = ActivitySnapshot.read(file);
+        assertNull(read.getLatest());
+        assertEquals(0, read.getRunCount());
+        assertEquals(empty, read);
+    }
+
+    private static InMemoryActivityStore storeWith(int size) {
+        InMemoryActivityStore store = new InMemoryActivityStore();
+        store.saveAll(activities(0, size));
+        return store;
+    }
+
+    private static List<Activity> activities(int from, int to) {
+        List<Activity> activities = new ArrayList<>();
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            activities.add(StravaJson.gson().fromJson(StravaFixtures.activityJson(ordinal), Activity.class));
+        }
+        return activities;
+    }
+}
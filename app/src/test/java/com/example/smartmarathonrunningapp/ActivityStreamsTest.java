@@ -0,0 +1,128 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Streams of a 4-hour marathon at 1 Hz: parsing, the delta-encoded file and scans of the mapping
+public class ActivityStreamsTest {
+    private static final int MARATHON_SECONDS = 4 * 3600;
+    private static final String MARATHON_JSON = StravaFixtures.runStreamsJson(MARATHON_SECONDS);
+
+    private File dir;
+    private ActivityStreamStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("activity-streams").toFile();
+        store = new ActivityStreamStore(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void marathonIsAFractionOfItsJsonSize() throws Exception {
+        store.save(1, ActivityStreams.read(new StringReader(MARATHON_JSON)));
+
+        int jsonBytes = MARATHON_JSON.getBytes(StandardCharsets.UTF_8).length;
+        long fileBytes = store.sizeBytes();
+        assertTrue(fileBytes * 5 < jsonBytes); // About one byte per sample per stream, against ~6 of JSON
+        ActivityStreamsFile file = store.open(1);
+        assertEquals(MARATHON_SECONDS, file.columnBytes(ActivityStreams.TIME)); // One byte per 1 Hz tick
+    }
+
+    @Test
+    public void mappedColumnsMatchTheJsonExactly() throws Exception {
+        ActivityStreams parsed = ActivityStreams.read(new StringReader(MARATHON_JSON));
+        store.save(1, parsed);
+
+        ActivityStreamsFile file = store.open(1);
+
+        assertEquals(MARATHON_SECONDS, file.pointCount());
+        for (int type = 0; type < ActivityStreams.TYPE_COUNT; type++) {
+            assertEquals(parsed.has(type), file.has(type));
+            if (parsed.has(type)) {
+                assertArrayEquals(parsed.column(type), file.readColumn(type));
+            }
+        }
+        assertFalse(file.has(ActivityStreams.WATTS)); // Not in the response
+        ActivityStreamsFile.Cursor altitude = file.cursor(ActivityStreams.ALTITUDE);
+        assertEquals(20.0, altitude.next(), 0.2); // Back in meters
+    }
+
+    @Test
+    public void scanningTheMappingAllocatesNothing() throws Exception {
+        store.save(1, ActivityStreams.read(new StringReader(MARATHON_JSON)));
+        ActivityStreamsFile file = store.open(1);
+        ActivityStreamsFile.Cursor cursor = new ActivityStreamsFile.Cursor();
+        for (int i = 0; i < 20; i++) {
+            maxHeartRate(file, cursor); // Warm up
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int max = maxHeartRate(file, cursor);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(max >= 170);
+        assertTrue(allocated < 1024); // The 14,400 samples are decoded in place, not copied
+    }
+
+    @Test
+    public void repositoryDownloadsStreamsOnceAndMapsThem() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setHeader("Content-Type", "application/json").setBody(MARATHON_JSON));
+        server.start();
+        try {
+            StravaRepository repository = new StravaRepository(server.url("/").toString());
+
+            ActivityStreamsFile first = repository.getActivityStreams("token", 1234, store);
+            ActivityStreamsFile second = repository.getActivityStreams("token", 1234, store);
+
+            assertEquals(MARATHON_SECONDS, first.pointCount());
+            assertEquals(MARATHON_SECONDS, second.pointCount());
+            assertEquals(1, server.getRequestCount()); // Served from disk the second time
+            RecordedRequest request = server.takeRequest();
+            assertEquals("/api/v3/activities/1234/streams", request.getRequestUrl().encodedPath());
+            assertEquals("true", request.getRequestUrl().queryParameter("key_by_type"));
+            assertEquals(ActivityStreams.ALL_KEYS, request.getRequestUrl().queryParameter("keys"));
+            assertEquals("Bearer token", request.getHeader("Authorization"));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static int maxHeartRate(ActivityStreamsFile file, ActivityStreamsFile.Cursor cursor) {
+        int max = 0;
+        file.cursor(ActivityStreams.HEARTRATE, cursor);
+        while (cursor.hasNext()) {
+            max = Math.max(max, cursor.nextRaw());
+        }
+        return max;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ActivityTimeIndexTest {
+    private static final int MONDAY = (int) IsoDates.epochDay(2024, 11, 4);
+
+    @Test
+    public void parsesStartOnceAtIngest() {
+        Activity activity = StravaJson.gson().fromJson("{\"start_date\":\"2024-11-06T23:30:00Z\","
+                + "\"start_date_local\":\"2024-11-07T00:30:00Z\"}", Activity.class);
+
+        assertEquals(IsoDates.toEpochSeconds("2024-11-06T23:30:00Z"), activity.getStartEpochSeconds());
+        assertEquals(MONDAY + 3, activity.getLocalDay()); // Thursday locally, still Wednesday in UTC
+    }
+
+    @Test
+    public void isoWeekStartsOnMonday() {
+        for (int day = MONDAY; day < MONDAY + 7; day++) {
+            assertEquals(MONDAY, IsoDates.isoWeekStart(day));
+        }
+        assertEquals(MONDAY + 7, IsoDates.isoWeekStart(MONDAY + 7));
+        assertEquals(0 - 3, IsoDates.isoWeekStart(0)); // 1970-01-01 was a Thursday
+    }
+
+    @Test
+    public void answersDayWeekAndTimeWindows() {
+        ActivityColumns columns = new ActivityColumns();
+        long mondayStart = MONDAY * 86400L;
+        append(columns, 1, mondayStart - 3600, MONDAY - 1); // Sunday before
+        append(columns, 2, mondayStart + 7 * 3600, MONDAY);
+        append(columns, 3, mondayStart + 18 * 3600, MONDAY);
+        append(columns, 4, mondayStart + 2 * 86400 + 3600, MONDAY + 2);
+        append(columns, 5, mondayStart + 6 * 86400 + 23 * 3600 + 30 * 60, MONDAY + 7); // Next Monday locally
+        append(columns, 6, mondayStart + 9 * 86400, MONDAY + 9);
+        ActivityTimeIndex index = new ActivityTimeIndex(columns);
+
+        assertArrayEquals(new int[]{1, 2, 3}, index.rowsInIsoWeek(MONDAY + 3));
+        assertArrayEquals(new int[]{4, 5}, index.rowsInIsoWeek(MONDAY + 7));
+        assertArrayEquals(new int[]{1, 2}, index.rowsOnDays(MONDAY, MONDAY));
+        assertArrayEquals(new int[0], index.rowsOnDays(MONDAY + 3, MONDAY + 5));
+        assertEquals(2, index.countOnDay(MONDAY));
+        assertEquals(0, index.countOnDay(MONDAY + 1));
+        assertArrayEquals(new int[]{1, 2, 3}, index.rowsBetween(mondayStart, mondayStart + 3 * 86400));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, index.rowsBetween(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void bucketsSyntheticHistoryLikeAFullScan() {
+        ActivityColumns columns = new ActivityColumns();
+        for (int ordinal = 0; ordinal < 5_000; ordinal++) {
+            columns.append(StravaJson.gson().fromJson(StravaFixtures.activityJson(ordinal), Activity.class));
+        }
+        ActivityTimeIndex index = new ActivityTimeIndex(columns);
+
+        int firstDay = columns.localDay(0);
+        int lastDay = columns.localDay(columns.size() - 1);
+        for (int day = firstDay; day <= lastDay; day += 11) {
+            int week = IsoDates.isoWeekStart(day);
+            int scanned = 0;
+            for (int row = 0; row < columns.size(); row++) {
+                if (IsoDates.isoWeekStart(columns.localDay(row)) == week) {
+                    scanned++;
+                }
+            }
+            assertEquals(scanned, index.rowsInIsoWeek(day).length);
+        }
+    }
+
+    private static void append(ActivityColumns columns, long id, long startEpoch, int localDay) {
+        columns.append(id, 5000f, 1500, 1600, 10f, startEpoch, localDay, ActivityColumns.TYPE_RUN);
+    }
+}
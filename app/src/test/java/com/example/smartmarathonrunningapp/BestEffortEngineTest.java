@@ -0,0 +1,195 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Best efforts and race predictions over synthetic 1 Hz runs
+public class BestEffortEngineTest {
+    private File dir;
+    private ActivityStreamStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("best-efforts").toFile();
+        store = new ActivityStreamStore(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void evenPacedRunGivesExactSplits() throws Exception {
+        BestEffortEngine engine = new BestEffortEngine();
+        engine.addActivity(1, save(1, run(12_000, 4.0, 0, 0))); // 4:10 /km for 12k
+
+        assertEquals(250, engine.best(BestEffortEngine.ONE_K).seconds, 0.01);
+        assertEquals(1250, engine.best(BestEffortEngine.FIVE_K).seconds, 0.01);
+        assertEquals(2500, engine.best(BestEffortEngine.TEN_K).seconds, 0.01);
+        assertNull(engine.best(BestEffortEngine.HALF_MARATHON)); // Run too short
+    }
+
+    @Test
+    public void twoPointerMatchesBruteForceOnNoisyRuns() {
+        Random random = new Random(7);
+        for (int run = 0; run < 20; run++) {
+            int[][] streams = streams(6_000 + random.nextInt(6_000), 3.2, 0.8, random.nextLong());
+            double[] seconds = new double[BestEffortEngine.DISTANCES.length];
+            BestEffortEngine.bestEfforts(streams[0], streams[1], streams[0].length, seconds,
+                    new int[BestEffortEngine.DISTANCES.length]);
+
+            for (int target = 0; target < BestEffortEngine.DISTANCES.length; target++) {
+                double expected = bruteForce(streams[0], streams[1], BestEffortEngine.DISTANCES[target] * 10);
+                assertEquals(expected, seconds[target], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void leaderboardUpdatesAsRunsSync() throws Exception {
+        BestEffortEngine engine = new BestEffortEngine(3);
+        double[] speeds = {3.0, 3.4, 3.2, 3.6, 2.8};
+        for (int i = 0; i < speeds.length; i++) {
+            engine.addActivity(i + 1, save(i + 1, run(6_000, speeds[i], 0, 0)));
+        }
+
+        List<BestEffortEngine.Effort> fiveK = engine.leaderboard(BestEffortEngine.FIVE_K);
+        assertEquals(3, fiveK.size());
+        assertEquals(4, fiveK.get(0).activityId); // 3.6 m/s
+        assertEquals(2, fiveK.get(1).activityId);
+        assertEquals(3, fiveK.get(2).activityId);
+
+        engine.addActivity(4, save(4, run(6_000, 2.5, 0, 0))); // Re-synced slower: replaces, not duplicates
+        fiveK = engine.leaderboard(BestEffortEngine.FIVE_K);
+        assertEquals(Arrays.asList(2L, 3L, 1L), Arrays.asList(fiveK.get(0).activityId, fiveK.get(1).activityId,
+                fiveK.get(2).activityId));
+    }
+
+    @Test
+    public void marathonIsPredictedFromTheLongestEffort() throws Exception {
+        BestEffortEngine engine = new BestEffortEngine();
+        engine.addActivity(1, save(1, run(10_000, 1000.0 / 240, 0, 0))); // 10k in 40:00
+        assertEquals(BestEffortEngine.riegel(2400, 10_000, 42_195), engine.predictMarathonSeconds(), 0.5);
+        assertTrue(engine.predictMarathonSeconds() > 3 * 3600 && engine.predictMarathonSeconds() < 3.25 * 3600);
+
+        engine.addActivity(2, save(2, run(21_100, 1000.0 / 300, 0, 0))); // Half at 5:00 /km
+        assertEquals(BestEffortEngine.riegel(21_097.5 * 0.3, 21_097.5, 42_195), engine.predictMarathonSeconds(), 0.5);
+    }
+
+    @Test
+    public void parallelRebuildMatchesIncrementalAdds() throws Exception {
+        Random random = new Random(11);
+        long[] ids = new long[48];
+        BestEffortEngine incremental = new BestEffortEngine();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i + 1;
+            incremental.addActivity(ids[i], save(ids[i], run(5_000 + random.nextInt(20_000), 2.8 + random.nextDouble(),
+                    0.5, random.nextLong())));
+        }
+
+        BestEffortEngine rebuilt = new BestEffortEngine();
+        rebuilt.rebuild(ids, store, Runtime.getRuntime().availableProcessors());
+
+        for (int target = 0; target < BestEffortEngine.DISTANCES.length; target++) {
+            List<BestEffortEngine.Effort> expected = incremental.leaderboard(target);
+            List<BestEffortEngine.Effort> actual = rebuilt.leaderboard(target);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).activityId, actual.get(i).activityId);
+                assertEquals(expected.get(i).seconds, actual.get(i).seconds, 0);
+            }
+        }
+        assertEquals(incremental.predictMarathonSeconds(), rebuilt.predictMarathonSeconds(), 0);
+    }
+
+    @Test
+    public void ridesNeverSetBestEfforts() throws Exception {
+        Activity ride = new Activity();
+        ride.setId(1);
+        ride.setType("Ride");
+        Activity run = new Activity();
+        run.setId(2);
+        run.setType("VirtualRun");
+        BestEffortEngine engine = new BestEffortEngine();
+        engine.addActivity(ride, save(1, run(40_000, 9.0, 0, 0))); // 9 m/s would beat any runner's 1k
+        assertNull(engine.best(BestEffortEngine.ONE_K));
+        engine.addActivity(run, save(2, run(6_000, 4.0, 0, 0)));
+        assertEquals(2, engine.best(BestEffortEngine.ONE_K).activityId);
+
+        ActivityColumns history = new ActivityColumns();
+        history.append(1, 40_000f, 4445, 4445, 0f, 0, 0, ActivityColumns.TYPE_RIDE);
+        history.append(2, 6_000f, 1500, 1500, 0f, 86400, 1, ActivityColumns.TYPE_VIRTUAL_RUN);
+        BestEffortEngine rebuilt = new BestEffortEngine();
+        rebuilt.rebuild(history, store, 2);
+        assertEquals(1, rebuilt.leaderboard(BestEffortEngine.ONE_K).size());
+        assertEquals(2, rebuilt.best(BestEffortEngine.ONE_K).activityId);
+    }
+
+    private ActivityStreamsFile save(long id, ActivityStreams streams) throws Exception {
+        store.save(id, streams);
+        return store.open(id);
+    }
+
+    // A run of at least the given meters at about the given speed, sampled at 1 Hz
+    private static ActivityStreams run(int meters, double speed, double noise, long seed) {
+        int[][] columns = streams(meters, speed, noise, seed);
+        ActivityStreams streams = new ActivityStreams();
+        streams.setColumn(ActivityStreams.TIME, columns[0]);
+        streams.setColumn(ActivityStreams.DISTANCE, columns[1]);
+        return streams;
+    }
+
+    // {time seconds, distance decimeters}; noisy runs also get pauses where time jumps
+    private static int[][] streams(int meters, double speed, double noise, long seed) {
+        Random random = new Random(seed);
+        int count = (int) Math.ceil(meters / speed) + 2;
+        int[] time = new int[count];
+        int[] distance = new int[count];
+        double covered = 0;
+        for (int i = 1; i < count; i++) {
+            time[i] = time[i - 1] + (noise > 0 && random.nextInt(500) == 0 ? 30 : 1);
+            covered += Math.max(0, speed + random.nextGaussian() * noise);
+            distance[i] = (int) Math.round(covered * 10);
+        }
+        return new int[][]{time, distance};
+    }
+
+    // O(n^2) reference: every window that covers the span, start interpolated like the engine does
+    private static double bruteForce(int[] time, int[] distance, double span) {
+        double best = Double.NaN;
+        for (int right = 1; right < time.length; right++) {
+            for (int left = right - 1; left >= 0; left--) {
+                if (distance[right] - distance[left] >= span) {
+                    double startDistance = distance[right] - span;
+                    int segment = distance[left + 1] - distance[left];
+                    double fraction = segment > 0 ? (startDistance - distance[left]) / segment : 0;
+                    double effort = time[right] - (time[left] + fraction * (time[left + 1] - time[left]));
+                    if (!(effort >= best)) {
+                        best = effort;
+                    }
+                    break; // Earlier starts only make the window longer
+                }
+            }
+        }
+        return best;
+    }
+}
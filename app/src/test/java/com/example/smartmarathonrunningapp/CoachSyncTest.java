@@ -0,0 +1,188 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// A 50-athlete training group synced against a local mock server, each athlete with their own
+// token and history
+public class CoachSyncTest {
+    private static final int ATHLETES = 50;
+    private static final long DELAY_MILLIS = 40;
+
+    private MockWebServer server;
+    private StravaRepository repository;
+    private final Map<String, StravaFixtures.History> histories = new ConcurrentHashMap<>(); // By access token
+    private final List<String> requestOrder = Collections.synchronizedList(new ArrayList<>()); // Athlete per request
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger(); // Most requests the server sat on at once
+    private final Map<String, AtomicInteger> inFlightByAthlete = new ConcurrentHashMap<>();
+    private final AtomicInteger maxInFlightForOneAthlete = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String token = request.getHeader("Authorization").substring("Bearer ".length());
+                StravaFixtures.History history = histories.get(token);
+                if (history == null) {
+                    return new MockResponse().setResponseCode(401);
+                }
+                requestOrder.add(token);
+                AtomicInteger athleteInFlight = inFlightByAthlete.computeIfAbsent(token, t -> new AtomicInteger());
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                maxInFlightForOneAthlete.accumulateAndGet(athleteInFlight.incrementAndGet(), Math::max);
+                try {
+                    return history.dispatch(request);
+                } finally {
+                    athleteInFlight.decrementAndGet();
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void everyAthleteSyncsIntoTheirOwnStore() throws Exception {
+        List<CoachSync.Athlete> group = group(i -> i == 0 ? 5_000 : 1 + i * 37 % 450);
+
+        CoachSync.Result result = new CoachSync(repository, 4).syncAll(group);
+
+        assertTrue(result.failures().isEmpty());
+        for (int i = 0; i < ATHLETES; i++) {
+            CoachSync.Athlete athlete = group.get(i);
+            int size = histories.get(athlete.id).size.get();
+            assertEquals(size, athlete.store.count());
+            assertEquals(size, result.saved(athlete.id));
+            assertEquals(size, athlete.store.getLatest().getId()); // Their own newest run, nobody else's
+        }
+        assertEquals(5_000 + sumOfOthers(group), result.totalSaved());
+
+        // A second sync finds nothing new: one short request per athlete
+        int requests = server.getRequestCount();
+        assertEquals(0, new CoachSync(repository, 4).syncAll(group).totalSaved());
+        assertEquals(requests + ATHLETES, server.getRequestCount());
+    }
+
+    @Test
+    public void longHistoryDoesNotStarveTheOthers() throws Exception {
+        List<CoachSync.Athlete> group = group(i -> i == 0 ? 5_000 : 150); // One page each, 26 for athlete 0
+        int concurrency = 4;
+
+        new CoachSync(repository, concurrency).syncAll(group);
+
+        String heavy = group.get(0).id;
+        List<String> order = new ArrayList<>(requestOrder);
+        int heavySecondPage = -1;
+        int lastOther = 0;
+        for (int i = 0, heavyPages = 0; i < order.size(); i++) {
+            if (!order.get(i).equals(heavy)) {
+                lastOther = i;
+            } else if (++heavyPages == 2) {
+                heavySecondPage = i;
+            }
+        }
+        // Athlete 0 went back in line after its first page, so everyone else had started by then
+        // (give or take the pages that were in flight), and it had most of its history left
+        assertTrue(heavySecondPage >= ATHLETES - concurrency);
+        assertTrue(lastOther < heavySecondPage + concurrency);
+        assertEquals(26 + ATHLETES - 1, order.size());
+    }
+
+    @Test
+    public void keepsUpToTheConcurrencyInFlightAndOnePerAthlete() throws Exception {
+        int[] concurrencies = {1, 4, 8};
+        for (int concurrency : concurrencies) {
+            List<CoachSync.Athlete> group = group(i -> i < 5 ? 450 : 100); // A few athletes with three pages
+            maxInFlight.set(0);
+            CoachSync.Result result = new CoachSync(repository, concurrency).syncAll(group);
+
+            assertEquals(5 * 450 + (ATHLETES - 5) * 100, result.totalSaved());
+            assertEquals(concurrency, maxInFlight.get());
+        }
+        assertEquals(1, maxInFlightForOneAthlete.get()); // An athlete's pages are fetched in turn, never at once
+        // How much faster that makes a group sync is CoachSyncBenchmark's job
+    }
+
+    @Test
+    public void revokedAthleteIsReportedAsAnAuthFailure() throws Exception {
+        List<CoachSync.Athlete> group = group(i -> 150);
+        String revoked = group.get(7).id;
+        histories.remove(revoked); // The server now answers their token with 401
+
+        CoachSync.Result result = new CoachSync(repository, 4).syncAll(group);
+
+        assertEquals(Collections.singleton(revoked), result.failures().keySet());
+        assertTrue(result.failures().get(revoked) instanceof StravaAuthException); // The worker skips it rather than retrying
+        assertEquals((ATHLETES - 1) * 150, result.totalSaved());
+    }
+
+    private interface Sizes {
+        int of(int athlete);
+    }
+
+    // A fresh group with empty stores; tokens are numbered on from earlier groups, so each group
+    // has its own histories
+    private List<CoachSync.Athlete> group(Sizes sizes) {
+        int generation = histories.size();
+        List<CoachSync.Athlete> group = new ArrayList<>();
+        for (int i = 0; i < ATHLETES; i++) {
+            String token = "athlete-" + (generation + i);
+            histories.put(token, new StravaFixtures.History(sizes.of(i), DELAY_MILLIS));
+            MemoryTokenStore tokens = new MemoryTokenStore();
+            tokens.token = new TokenResponse(token, "refresh-" + token, Long.MAX_VALUE / 1000);
+            TokenManager manager = new TokenManager(null, tokens, "client", "secret", System::currentTimeMillis);
+            group.add(new CoachSync.Athlete(token, manager, new InMemoryActivityStore()));
+        }
+        return group;
+    }
+
+    private int sumOfOthers(List<CoachSync.Athlete> group) {
+        int sum = 0;
+        for (int i = 1; i < group.size(); i++) {
+            sum += histories.get(group.get(i).id).size.get();
+        }
+        return sum;
+    }
+
+    private static class MemoryTokenStore implements TokenStore {
+        volatile TokenResponse token;
+
+        @Override
+        public TokenResponse load() {
+            return token;
+        }
+
+        @Override
+        public void save(TokenResponse token) {
+            this.token = token;
+        }
+
+        @Override
+        public void clear() {
+            token = null;
+        }
+    }
+}
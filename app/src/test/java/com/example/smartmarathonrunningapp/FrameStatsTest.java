@@ -0,0 +1,51 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+// Slow and frozen frame counting per screen
+public class FrameStatsTest {
+    private static final long MILLIS = 1_000_000;
+
+    @Before
+    public void setUp() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void framesAreClassifiedAgainstTheDisplayBudget() {
+        FrameStats stats = new FrameStats("TestScreen", FrameStats.budgetNanos(60));
+        long[] frames = {8 * MILLIS, 12 * MILLIS, 16 * MILLIS, 17 * MILLIS, 40 * MILLIS, 701 * MILLIS};
+        for (long frame : frames) {
+            stats.record(frame);
+        }
+
+        assertEquals(6, stats.frameCount());
+        assertEquals(3, stats.slowFrameCount()); // 17, 40 and 701 ms miss 16.7 ms
+        assertEquals(1, stats.frozenFrameCount());
+        assertTrue(Metrics.dump().contains("frame.TestScreen n=6"));
+        assertTrue(Metrics.dump().contains("frame.TestScreen.slow 3"));
+    }
+
+    @Test
+    public void fasterDisplaysHaveATighterBudget() {
+        FrameStats stats = new FrameStats("HighRefresh", FrameStats.budgetNanos(120));
+        stats.record(12 * MILLIS); // Fine at 60 Hz, late at 120 Hz
+
+        assertEquals(1, stats.slowFrameCount());
+        assertEquals(16_666_666, FrameStats.budgetNanos(60));
+    }
+
+    @Test
+    public void screensAccumulateAcrossVisits() {
+        new FrameStats("Revisited", FrameStats.budgetNanos(60)).record(30 * MILLIS);
+        FrameStats secondVisit = new FrameStats("Revisited", FrameStats.budgetNanos(60));
+        secondVisit.record(5 * MILLIS);
+
+        assertEquals(2, secondVisit.frameCount());
+        assertEquals(1, secondVisit.slowFrameCount());
+    }
+}
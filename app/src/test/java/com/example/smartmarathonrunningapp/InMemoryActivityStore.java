@@ -0,0 +1,60 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+// ActivityStore kept in memory, standing in for SQLite in JVM tests
+class InMemoryActivityStore implements ActivityStore {
+    private final TreeMap<Long, Activity> byStart = new TreeMap<>(Collections.reverseOrder()); // Newest first
+    int saveCalls; // Number of saveAll batches, i.e. transactions
+
+    @Override
+    public synchronized void saveAll(List<Activity> activities) {
+        saveCalls++;
+        for (Activity activity : activities) {
+            byStart.put(activity.getStartEpochSeconds(), activity);
+        }
+    }
+
+    @Override
+    public synchronized long getHighWaterMark() {
+        return byStart.isEmpty() ? 0 : byStart.firstKey();
+    }
+
+    @Override
+    public synchronized long getLowWaterMark() {
+        return byStart.isEmpty() ? 0 : byStart.lastKey();
+    }
+
+    @Override
+    public synchronized int countStartedAfter(long epochSeconds) {
+        return byStart.headMap(epochSeconds).size(); // Newest first, so the head is everything later
+    }
+
+    @Override
+    public synchronized Activity getLatest() {
+        return byStart.isEmpty() ? null : byStart.firstEntry().getValue();
+    }
+
+    @Override
+    public synchronized List<Activity> getActivities(int limit, int offset) {
+        List<Activity> all = new ArrayList<>(byStart.values());
+        return new ArrayList<>(all.subList(Math.min(offset, all.size()), Math.min(offset + limit, all.size())));
+    }
+
+    @Override
+    public synchronized int count() {
+        return byStart.size();
+    }
+
+    @Override
+    public synchronized ActivityColumns loadColumns() {
+        ActivityColumns columns = new ActivityColumns(byStart.size());
+        for (Activity activity : byStart.descendingMap().values()) {
+            columns.append(activity);
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// "after"-cursor sync into the local store against a local mock server
+public class IncrementalSyncTest {
+    private MockWebServer server;
+    private StravaFixtures.History history;
+    private StravaRepository repository;
+    private InMemoryActivityStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        history = new StravaFixtures.History(1_000, 0);
+        server = new MockWebServer();
+        server.setDispatcher(history);
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+        store = new InMemoryActivityStore();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void coldSyncDownloadsWholeHistoryOnePagePerTransaction() throws Exception {
+        assertEquals(1_000, repository.syncNewActivities("token", store));
+
+        assertEquals(1_000, store.count());
+        assertEquals(5, store.saveCalls); // 200 + 200 + 200 + 200 + 200
+        assertEquals(1_000, store.getLatest().getId());
+        assertEquals(StravaFixtures.startEpoch(999), store.getHighWaterMark());
+    }
+
+    @Test
+    public void warmSyncCostsOneSmallRequest() throws Exception {
+        repository.syncNewActivities("token", store);
+        int requestsBefore = server.getRequestCount();
+        history.size.addAndGet(3); // Three new runs since the last sync
+        for (int i = 0; i < requestsBefore; i++) {
+            server.takeRequest();
+        }
+
+        assertEquals(3, repository.syncNewActivities("token", store));
+
+        assertEquals(requestsBefore + 1, server.getRequestCount());
+        RecordedRequest request = server.takeRequest();
+        assertEquals(String.valueOf(StravaFixtures.startEpoch(999)), request.getRequestUrl().queryParameter("after"));
+        assertEquals(1_003, store.count());
+        assertEquals(1_003, store.getLatest().getId());
+    }
+
+    @Test
+    public void listenerSeesEachPageAfterItIsSaved() throws Exception {
+        List<Integer> pages = new ArrayList<>();
+        assertEquals(1_000, repository.syncNewActivities("token", store, activities -> {
+            assertEquals(pages.size() + 1, store.saveCalls); // Already in the store
+            pages.add(activities.size());
+        }));
+
+        assertEquals(5, pages.size());
+        for (int size : pages) {
+            assertEquals(200, size);
+        }
+    }
+
+    @Test
+    public void upToDateStoreSavesNothing() throws Exception {
+        repository.syncNewActivities("token", store);
+        int saveCalls = store.saveCalls;
+
+        assertEquals(0, repository.syncNewActivities("token", store));
+        assertEquals(saveCalls, store.saveCalls);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Response;
+
+// Stage timings from a real call against a local mock server; what recording costs is measured by
+// MetricsBenchmark
+public class MetricsTest {
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        Metrics.reset();
+        server = new MockWebServer();
+        server.setDispatcher(new StravaFixtures.History(400, 0));
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void callStagesAreRecorded() throws Exception {
+        StravaClient client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+
+        for (int page = 1; page <= 2; page++) {
+            Response<List<Activity>> response = client.api().getUserActivities("Bearer token", page, 200).execute();
+            assertEquals(200, response.body().size());
+        }
+
+        assertEquals(2, Metrics.histogram(Metrics.CALL).count());
+        assertEquals(2, Metrics.histogram(Metrics.TIME_TO_FIRST_BYTE).count());
+        assertEquals(2, Metrics.histogram(Metrics.PARSE).count());
+        assertEquals(1, Metrics.histogram(Metrics.CONNECT).count()); // Second call reuses the connection
+        assertEquals(1, Metrics.counter(Metrics.CONNECTIONS_NEW).get());
+        assertEquals(1, Metrics.counter(Metrics.CONNECTIONS_REUSED).get());
+        assertEquals(0, Metrics.counter(Metrics.CALL_FAILURES).get());
+        String dump = Metrics.dump();
+        assertTrue(dump, dump.contains("net.ttfb n=2 p50="));
+        assertTrue(dump, dump.contains("net.calls 2"));
+    }
+}
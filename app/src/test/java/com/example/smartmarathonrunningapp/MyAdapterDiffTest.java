@@ -0,0 +1,117 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+// The adapter's diff on a long history: a sync should only touch the rows that changed
+public class MyAdapterDiffTest {
+    private static final int HISTORY_SIZE = 5_000;
+
+    @Test
+    public void oneNewRunTouchesOneRow() {
+        List<Activity> before = history(HISTORY_SIZE);
+        List<Activity> after = history(HISTORY_SIZE + 1); // Same runs plus a newer one on top
+
+        CountingUpdates updates = diff(before, after);
+
+        assertEquals(1, updates.inserted);
+        assertEquals(0, updates.changed);
+        assertEquals(0, updates.removed);
+        assertEquals(0, updates.moved);
+    }
+
+    @Test
+    public void renamedRunIsTheOnlyRowRebound() {
+        List<Activity> before = history(HISTORY_SIZE);
+        List<Activity> after = history(HISTORY_SIZE);
+        after.get(42).setName("Parkrun PB");
+
+        CountingUpdates updates = diff(before, after);
+
+        assertEquals(1, updates.changed);
+        assertEquals(0, updates.inserted + updates.removed + updates.moved);
+    }
+
+    @Test
+    public void identicalListTouchesNothing() {
+        CountingUpdates updates = diff(history(HISTORY_SIZE), history(HISTORY_SIZE));
+
+        assertEquals(0, updates.inserted + updates.removed + updates.changed + updates.moved);
+    }
+
+    // Newest first, as the store returns them; fresh objects every time, as after a reload
+    private static List<Activity> history(int size) {
+        List<Activity> activities = new ArrayList<>(size);
+        for (int ordinal = size - 1; ordinal >= 0; ordinal--) {
+            Activity activity = new Activity();
+            activity.setId(ordinal + 1);
+            activity.setName("Run " + ordinal);
+            activity.setDistance(5000 + (ordinal % 37) * 250);
+            activity.setMoving_time(1500 + (ordinal % 41) * 30);
+            activity.setType("Run");
+            activity.setStart_date("2024-01-01T06:00:00Z");
+            activities.add(activity);
+        }
+        return activities;
+    }
+
+    // Same diff AsyncListDiffer computes in the background
+    private static CountingUpdates diff(List<Activity> oldList, List<Activity> newList) {
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return MyAdapter.DIFF_CALLBACK.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return MyAdapter.DIFF_CALLBACK.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+        });
+        CountingUpdates updates = new CountingUpdates();
+        result.dispatchUpdatesTo(updates);
+        return updates;
+    }
+
+    private static class CountingUpdates implements ListUpdateCallback {
+        int inserted;
+        int removed;
+        int changed;
+        int moved;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            changed += count;
+        }
+    }
+}
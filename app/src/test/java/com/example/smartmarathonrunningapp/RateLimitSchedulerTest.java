@@ -0,0 +1,150 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+public class RateLimitSchedulerTest {
+    private final AtomicLong now = new AtomicLong(2_000 * RateLimitScheduler.SHORT_WINDOW_MILLIS + 1_000); // Just into a window
+    private MockWebServer server;
+    private StravaApiService api;
+    private volatile String limitHeader = "10,1000";
+    private volatile int statusCode = 200;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            private int usage;
+
+            @Override
+            public synchronized MockResponse dispatch(RecordedRequest request) {
+                usage++;
+                return new MockResponse().setResponseCode(statusCode)
+                        .setHeader("X-RateLimit-Limit", limitHeader)
+                        .setHeader("X-RateLimit-Usage", usage + "," + usage)
+                        .setBody("[]");
+            }
+        });
+        server.start();
+        api = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null)).api();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void foregroundJumpsAheadOfQueuedBackground() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(now::get, 1); // One request at a time
+        limitHeader = "600,30000";
+        CountDownLatch done = new CountDownLatch(4);
+        scheduler.enqueue(page(1), RateLimitScheduler.Priority.BACKGROUND, countDown(done));
+        scheduler.enqueue(page(2), RateLimitScheduler.Priority.BACKGROUND, countDown(done));
+        scheduler.enqueue(page(3), RateLimitScheduler.Priority.BACKGROUND, countDown(done));
+        scheduler.enqueue(page(99), RateLimitScheduler.Priority.FOREGROUND, countDown(done));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals("1", server.takeRequest().getRequestUrl().queryParameter("page"));
+        assertEquals("99", server.takeRequest().getRequestUrl().queryParameter("page")); // Ahead of 2 and 3
+        assertEquals("2", server.takeRequest().getRequestUrl().queryParameter("page"));
+        assertEquals("3", server.takeRequest().getRequestUrl().queryParameter("page"));
+    }
+
+    @Test
+    public void backgroundBacksOffBeforeTheLimitWhileForegroundStillRuns() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(now::get, 8);
+        scheduler.execute(page(1), RateLimitScheduler.Priority.FOREGROUND); // Learn the 10-per-window limit
+        assertEquals(10, scheduler.shortWindowLimit());
+
+        CountDownLatch background = new CountDownLatch(9);
+        for (int page = 2; page <= 10; page++) {
+            scheduler.enqueue(page(page), RateLimitScheduler.Priority.BACKGROUND, countDown(background));
+        }
+        awaitRequests(4); // Half of the 8-request background share, then pacing starts
+        Thread.sleep(200);
+        assertEquals(4, server.getRequestCount());
+        assertEquals(6, scheduler.waitingCount());
+
+        Response<List<Activity>> foreground = scheduler.execute(page(11), RateLimitScheduler.Priority.FOREGROUND);
+        assertTrue(foreground.isSuccessful()); // Foreground is never paced
+        assertEquals(5, server.getRequestCount());
+
+        now.addAndGet(RateLimitScheduler.SHORT_WINDOW_MILLIS); // Next window: the budget is back
+        scheduler.dispatch();
+        awaitRequests(9);
+    }
+
+    @Test
+    public void tooManyRequestsHoldsEverythingUntilTheWindowResets() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(now::get, 8);
+        statusCode = 429;
+        assertEquals(429, scheduler.execute(page(1), RateLimitScheduler.Priority.FOREGROUND).code());
+        statusCode = 200;
+
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.enqueue(page(2), RateLimitScheduler.Priority.FOREGROUND, countDown(done));
+        assertEquals(1, scheduler.waitingCount());
+
+        now.addAndGet(RateLimitScheduler.SHORT_WINDOW_MILLIS);
+        scheduler.dispatch();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelledWaitingCallsDoNotSpendBudget() throws Exception {
+        RateLimitScheduler scheduler = new RateLimitScheduler(now::get, 1);
+        limitHeader = "600,30000";
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.enqueue(page(1), RateLimitScheduler.Priority.BACKGROUND, countDown(done));
+        Call<List<Activity>> cancelled = page(2);
+        cancelled.cancel(); // Cancelled while still waiting behind page 1
+        scheduler.enqueue(cancelled, RateLimitScheduler.Priority.BACKGROUND, countDown(done));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, scheduler.shortWindowUsage());
+    }
+
+    private Call<List<Activity>> page(int page) {
+        return api.getUserActivities("Bearer token", page, 200);
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getRequestCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, server.getRequestCount());
+    }
+
+    private static Callback<List<Activity>> countDown(CountDownLatch latch) {
+        return new Callback<List<Activity>>() {
+            @Override
+            public void onResponse(Call<List<Activity>> call, Response<List<Activity>> response) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<List<Activity>> call, Throwable t) {
+                latch.countDown();
+            }
+        };
+    }
+}
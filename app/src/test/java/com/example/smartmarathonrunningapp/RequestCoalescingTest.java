@@ -0,0 +1,119 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Duplicate page fetches against a slow local mock server
+public class RequestCoalescingTest {
+    private MockWebServer server;
+    private StravaRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new StravaFixtures.History(1_000, 200)); // Slow enough for callers to overlap
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void identicalFetchesShareOneRequest() throws Exception {
+        CountingCallback callback = new CountingCallback(10);
+        for (int i = 0; i < 10; i++) {
+            repository.fetchActivities("token", 1, 200, callback);
+        }
+
+        assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        assertEquals(10, callback.pages.get());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(9, repository.savedPageRequests());
+    }
+
+    @Test
+    public void differentPagesAreNotCoalesced() throws Exception {
+        CountingCallback callback = new CountingCallback(3);
+        repository.fetchActivities("token", 1, 200, callback);
+        repository.fetchActivities("token", 2, 200, callback);
+        repository.fetchActivities("token", 1, 100, callback);
+
+        assertTrue(callback.done.await(10, TimeUnit.SECONDS));
+        assertEquals(3, server.getRequestCount());
+        assertEquals(0, repository.savedPageRequests());
+    }
+
+    @Test
+    public void cancellingOneCallerKeepsTheSharedFetchForOthers() throws Exception {
+        CountingCallback cancelled = new CountingCallback(1);
+        CountingCallback waiting = new CountingCallback(1);
+        RequestCoalescer.Handle first = repository.fetchActivities("token", 1, 200, cancelled);
+        repository.fetchActivities("token", 1, 200, waiting);
+        first.cancel();
+
+        assertTrue(waiting.done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, waiting.pages.get());
+        assertEquals(0, waiting.failures.get());
+        assertFalse(cancelled.done.await(100, TimeUnit.MILLISECONDS)); // Cancelled caller hears nothing
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancellingEveryCallerCancelsTheCall() throws Exception {
+        CountingCallback callback = new CountingCallback(1);
+        RequestCoalescer.Handle first = repository.fetchActivities("token", 1, 200, callback);
+        RequestCoalescer.Handle second = repository.fetchActivities("token", 1, 200, callback);
+        first.cancel();
+        second.cancel();
+        assertTrue(second.isCanceled());
+
+        // A later fetch starts a fresh request instead of joining the cancelled one
+        CountingCallback later = new CountingCallback(1);
+        repository.fetchActivities("token", 1, 200, later);
+        assertTrue(later.done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, later.pages.get());
+        assertEquals(0, callback.pages.get() + callback.failures.get());
+    }
+
+    private static class CountingCallback implements Callback<List<Activity>> {
+        final CountDownLatch done;
+        final AtomicInteger pages = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+
+        CountingCallback(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onResponse(Call<List<Activity>> call, Response<List<Activity>> response) {
+            if (response.isSuccessful() && response.body() != null && !response.body().isEmpty()) {
+                pages.incrementAndGet();
+            } else {
+                failures.incrementAndGet();
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(Call<List<Activity>> call, Throwable t) {
+            failures.incrementAndGet();
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Page requests made for a screen against a slow local mock server, and what closing the screen's
+// scope does to them
+public class RequestScopeTest {
+    private static final long SLOW_MILLIS = 3_000;
+
+    private MockWebServer server;
+    private StravaClient client;
+    private StravaRepository repository;
+    private final RequestScope scope = new RequestScope();
+    private final ExecutorService waiters = Executors.newCachedThreadPool();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new StravaFixtures.History(1_000, SLOW_MILLIS));
+        server.start();
+        client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+        // Without hedging, so the slow server sees exactly the requests the scope made
+        repository = new StravaRepository(client.api(), client.scheduler(), null, new ResilientCalls(client.scheduler(),
+                new CircuitBreaker(), ResilientCalls.NO_HEDGING, 1, 0, 0, new Random()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        waiters.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void waitersForTheSamePageShareOneRequest() throws Exception {
+        Future<List<Activity>> first = waiters.submit(() -> fetchPage(1));
+        Future<List<Activity>> second = waiters.submit(() -> fetchPage(1));
+
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).size());
+        assertEquals(200, second.get(10, TimeUnit.SECONDS).size());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, scope.inFlightCount());
+    }
+
+    @Test
+    public void closingCancelsTheCallAndWakesTheWaiter() throws Exception {
+        Future<List<Activity>> page = waiters.submit(() -> fetchPage(1));
+        assertTrue(server.takeRequest(5, TimeUnit.SECONDS) != null); // The server is now sitting on it
+        scope.close();
+
+        try {
+            page.get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS); // Well before the response would arrive
+            fail("A closed scope must not deliver the page");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+        }
+        assertEquals(0, scope.inFlightCount());
+        long deadline = System.currentTimeMillis() + SLOW_MILLIS / 2;
+        while (client.httpClient().dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.httpClient().dispatcher().runningCallsCount()); // The Call itself was cancelled
+    }
+
+    @Test
+    public void closingCancelsAPageCacheRequestToo() throws Exception {
+        ActivityPageCache cache = new ActivityPageCache(client.api(), client.scheduler(), null);
+        StravaRepository cached = new StravaRepository(client.api(), client.scheduler(), cache, new ResilientCalls(
+                client.scheduler(), new CircuitBreaker(), ResilientCalls.NO_HEDGING, 1, 0, 0, new Random()));
+        Future<List<Activity>> page = waiters.submit(() -> cached.getActivitiesBefore("token", 0, 200, scope));
+        assertTrue(server.takeRequest(5, TimeUnit.SECONDS) != null);
+        scope.close();
+
+        try {
+            page.get(SLOW_MILLIS / 2, TimeUnit.MILLISECONDS);
+            fail("A closed scope must not deliver the page");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+        }
+        long deadline = System.currentTimeMillis() + SLOW_MILLIS / 2;
+        while (client.httpClient().dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.httpClient().dispatcher().runningCallsCount());
+        assertEquals(0, cache.memoryPageCount()); // Nothing half-downloaded was kept
+    }
+
+    @Test
+    public void closedScopeRefusesNewRequests() throws Exception {
+        scope.close();
+
+        try {
+            fetchPage(1);
+            fail("A closed scope must not start requests");
+        } catch (InterruptedIOException expected) {
+            assertTrue(scope.isClosed());
+        }
+        assertEquals(0, server.getRequestCount());
+    }
+
+    private List<Activity> fetchPage(int page) throws Exception {
+        return scope.await(callback -> repository.fetchActivities("token", page, 200, callback));
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Hedging, retries and the circuit breaker against a local mock server that injects latency spikes
+// and outages
+public class ResilientCallsTest {
+    private static final long SPIKE_MILLIS = 1_500;
+    private static final long NORMAL_MILLIS = 20;
+    private static final long HEDGE_AFTER_MILLIS = 150;
+
+    private MockWebServer server;
+    private FlakyStrava strava;
+    private StravaClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        strava = new FlakyStrava();
+        server.setDispatcher(strava);
+        server.start();
+        client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        strava.release.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void hedgingAnswersRequestsThatNeverCome() throws Exception {
+        strava.holdEvery = 10; // Every tenth request is held until the test is over
+        long hedges = Metrics.counter(Metrics.HEDGES).get();
+        StravaRepository repository = repository(HEDGE_AFTER_MILLIS, 1);
+
+        for (int page = 1; page <= 30; page++) {
+            assertTrue(fetch(repository, page).isSuccessful()); // Pages 10, 19 and 28 only through their hedge
+        }
+        assertEquals(33, server.getRequestCount()); // A hedge for each held request and no others
+        assertEquals(hedges + 3, Metrics.counter(Metrics.HEDGES).get());
+        // What that does to the p99 time to data is HedgingBenchmark's job
+    }
+
+    @Test
+    public void noHedgeIsSentWithoutSpareRateLimitBudget() throws Exception {
+        strava.usage.set(85); // Past the background share of a 100-request window
+        StravaRepository repository = repository(HEDGE_AFTER_MILLIS, 1);
+        fetch(repository, 1); // The first response reports the usage
+        long hedges = Metrics.counter(Metrics.HEDGES).get();
+        strava.spikeEvery = 1; // Every request stalls from now on
+
+        assertTrue(fetch(repository, 2).isSuccessful());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(hedges, Metrics.counter(Metrics.HEDGES).get());
+    }
+
+    @Test
+    public void transientErrorsAreRetriedWithBackoff() throws Exception {
+        strava.failFirst = 2; // Two 503s, then pages
+        Response<List<Activity>> response = fetch(repository(ResilientCalls.NO_HEDGING, 3), 1);
+
+        assertTrue(response.isSuccessful());
+        assertEquals(200, response.body().size());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void lastFailureIsReportedOnceAttemptsRunOut() throws Exception {
+        strava.failFirst = Integer.MAX_VALUE;
+        Response<List<Activity>> response = fetch(repository(ResilientCalls.NO_HEDGING, 3), 1);
+
+        assertEquals(503, response.code());
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        strava.status = 404;
+        Response<List<Activity>> response = fetch(repository(ResilientCalls.NO_HEDGING, 3), 1);
+
+        assertEquals(404, response.code());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void openCircuitStopsCallsUntilATrialSucceeds() throws Exception {
+        strava.failFirst = 3; // An outage that is over by the time the breaker lets a trial through
+        final long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(() -> now[0], 3, 30_000);
+        StravaRepository repository = repository(new ResilientCalls(client.scheduler(), breaker,
+                ResilientCalls.NO_HEDGING, 1, 0, 0, new Random(1)));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(503, fetch(repository, 1).code());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                fetch(repository, 1);
+                throw new AssertionError("An open circuit must fail without calling Strava");
+            } catch (IOException expected) {
+                // Rejected locally
+            }
+        }
+        assertEquals(3, server.getRequestCount());
+
+        now[0] += 30_000;
+        assertTrue(fetch(repository, 1).isSuccessful()); // The trial
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void failedTrialReopensTheCircuit() {
+        final long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(() -> now[0], 2, 1_000);
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+
+        now[0] = 1_000;
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.allowRequest()); // Only one trial at a time
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        now[0] = 1_999;
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void cancelledTrialHandsTheSlotBack() throws Exception {
+        final long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(() -> now[0], 1, 30_000);
+        StravaRepository repository = repository(new ResilientCalls(client.scheduler(), breaker,
+                ResilientCalls.NO_HEDGING, 1, 0, 0, new Random(1)));
+        strava.failFirst = 1;
+        assertEquals(503, fetch(repository, 1).code());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        now[0] += 30_000;
+        strava.spikeEvery = 2; // The trial stalls, so it is still in flight when cancelled
+        RequestCoalescer.Handle trial = repository.fetchActivities("token", 1, 200, new Callback<List<Activity>>() {
+            @Override
+            public void onResponse(Call<List<Activity>> call, Response<List<Activity>> response) {
+                throw new AssertionError("A cancelled caller is not called back");
+            }
+
+            @Override
+            public void onFailure(Call<List<Activity>> call, Throwable t) {
+                throw new AssertionError("A cancelled caller is not called back");
+            }
+        });
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        trial.cancel();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state()); // Not stuck half open
+
+        strava.spikeEvery = 0;
+        assertTrue(fetch(repository, 1).isSuccessful()); // A new trial, without waiting out another open time
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void cancelledTrialKeepsTheOldOpenTime() {
+        final long[] now = {0};
+        CircuitBreaker breaker = new CircuitBreaker(() -> now[0], 1, 1_000);
+        breaker.onFailure();
+        now[0] = 1_500;
+        assertTrue(breaker.allowRequest());
+        breaker.onCancelled();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertTrue(breaker.allowRequest());
+        breaker.onCancelled();
+        breaker.onCancelled(); // Only a half-open breaker is affected
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        breaker.onSuccess();
+        breaker.onCancelled();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void fullJitterStaysUnderTheExponentialCeiling() {
+        ResilientCalls calls = new ResilientCalls(new RateLimitScheduler(), new CircuitBreaker(), ResilientCalls.NO_HEDGING,
+                10, 100, 1_000, new Random(42));
+        long[] ceilings = {100, 200, 400, 800, 1_000, 1_000};
+        for (int retry = 1; retry <= ceilings.length; retry++) {
+            long sum = 0;
+            for (int i = 0; i < 2_000; i++) {
+                long delay = calls.backoffMillis(retry);
+                assertTrue(delay >= 0 && delay <= ceilings[retry - 1]);
+                sum += delay;
+            }
+            double mean = sum / 2_000.0;
+            assertTrue(Math.abs(mean - ceilings[retry - 1] / 2.0) < ceilings[retry - 1] * 0.1); // Spread over the whole range
+        }
+    }
+
+    private StravaRepository repository(long hedgeAfterMillis, int maxAttempts) {
+        return repository(new ResilientCalls(client.scheduler(), new CircuitBreaker(), hedgeAfterMillis, maxAttempts,
+                10, 50, new Random(1)));
+    }
+
+    private StravaRepository repository(ResilientCalls resilience) {
+        return new StravaRepository(client.api(), client.scheduler(), null, resilience);
+    }
+
+    private static Response<List<Activity>> fetch(StravaRepository repository, int page) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Object[] outcome = new Object[1];
+        repository.fetchActivities("token", page, 200, new Callback<List<Activity>>() {
+            @Override
+            public void onResponse(Call<List<Activity>> call, Response<List<Activity>> response) {
+                outcome[0] = response;
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<List<Activity>> call, Throwable t) {
+                outcome[0] = t;
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        if (outcome[0] instanceof IOException) {
+            throw (IOException) outcome[0];
+        }
+        @SuppressWarnings("unchecked")
+        Response<List<Activity>> response = (Response<List<Activity>>) outcome[0];
+        return response;
+    }
+
+    // Activity pages with a stall on every spikeEvery-th request, every holdEvery-th request held
+    // until released, a run of 503s at the start, or a fixed status
+    private static class FlakyStrava extends Dispatcher {
+        private final StravaFixtures.History history = new StravaFixtures.History(100_000, 0);
+        private final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger usage = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile int spikeEvery; // 0 for no spikes
+        volatile int holdEvery; // 0 for none held
+        volatile int failFirst;
+        volatile int status = 200;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            int n = requests.incrementAndGet();
+            if (holdEvery > 0 && n % holdEvery == 0) {
+                release.await();
+            }
+            Thread.sleep(spikeEvery > 0 && n % spikeEvery == 0 ? SPIKE_MILLIS : NORMAL_MILLIS);
+            int used = usage.incrementAndGet();
+            MockResponse response = new MockResponse()
+                    .setHeader("X-RateLimit-Limit", "100,1000")
+                    .setHeader("X-RateLimit-Usage", used + "," + used);
+            if (n <= failFirst) {
+                return response.setResponseCode(503);
+            }
+            if (status != 200) {
+                return response.setResponseCode(status);
+            }
+            return response.setHeader("Content-Type", "application/json").setBody(history.pageJson(request.getRequestUrl()));
+        }
+    }
+}
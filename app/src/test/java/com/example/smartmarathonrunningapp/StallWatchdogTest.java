@@ -0,0 +1,89 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// The stall watchdog against a stand-in main thread that runs posted tasks like a Looper
+public class StallWatchdogTest {
+    private static final long THRESHOLD_MILLIS = 100;
+
+    private final LinkedBlockingQueue<Runnable> mainQueue = new LinkedBlockingQueue<>();
+    private final List<StackTraceElement[]> stalls = new ArrayList<>();
+    private final List<Long> blockedMillis = new ArrayList<>();
+    private Thread mainThread;
+    private StallWatchdog watchdog;
+
+    @Before
+    public void setUp() {
+        mainThread = new Thread(() -> {
+            try {
+                while (true) {
+                    mainQueue.take().run();
+                }
+            } catch (InterruptedException e) {
+                // Test over
+            }
+        }, "fake-main");
+        mainThread.start();
+        watchdog = new StallWatchdog(mainQueue::add, mainThread, THRESHOLD_MILLIS, (blocked, stack) -> {
+            synchronized (stalls) {
+                stalls.add(stack);
+                blockedMillis.add(blocked);
+            }
+        });
+        watchdog.start();
+    }
+
+    @After
+    public void tearDown() {
+        watchdog.stop();
+        mainThread.interrupt();
+    }
+
+    @Test
+    public void longBlockIsReportedOnceWithTheBlockingStack() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        mainQueue.add(() -> {
+            blockMainThreadFor(THRESHOLD_MILLIS * 6);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(THRESHOLD_MILLIS * 3); // Watchdog sees the main thread running again
+
+        synchronized (stalls) {
+            assertEquals(1, stalls.size());
+            assertTrue(blockedMillis.get(0) >= THRESHOLD_MILLIS);
+            assertTrue(Arrays.toString(stalls.get(0)), Arrays.toString(stalls.get(0)).contains("blockMainThreadFor"));
+        }
+    }
+
+    @Test
+    public void shortWorkIsNotAStall() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mainQueue.add(() -> blockMainThreadFor(THRESHOLD_MILLIS / 10));
+            Thread.sleep(THRESHOLD_MILLIS / 2);
+        }
+
+        synchronized (stalls) {
+            assertEquals(0, stalls.size());
+        }
+    }
+
+    private static void blockMainThreadFor(long millis) {
+        try {
+            Thread.sleep(millis); // Stands in for disk or network work on the main thread
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
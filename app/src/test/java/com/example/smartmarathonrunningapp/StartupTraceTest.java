@@ -0,0 +1,32 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+
+// Stage timings recorded by the startup pre-warm
+public class StartupTraceTest {
+    @After
+    public void tearDown() {
+        StartupTrace.clear();
+    }
+
+    @Test
+    public void stagesAreKeptInTheOrderTheyFinished() throws Exception {
+        long start = StartupTrace.begin();
+        Thread.sleep(5);
+        StartupTrace.end("gson", start);
+        StartupTrace.end("http-client", StartupTrace.begin());
+
+        List<String> names = new ArrayList<>(StartupTrace.stages().keySet());
+        assertEquals("gson", names.get(0));
+        assertEquals("http-client", names.get(1));
+        assertTrue(StartupTrace.durationNanos("gson") >= 5_000_000);
+        assertEquals(-1, StartupTrace.durationNanos("retrofit"));
+        assertTrue(StartupTrace.summary().startsWith("gson "));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.GzipSink;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Response;
+
+// Shared client behaviour against a local mock server: connection reuse, HTTP cache and gzip
+public class StravaClientTest {
+    private MockWebServer server;
+    private File cacheDir;
+    private StravaClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        cacheDir = Files.createTempDirectory("strava-http").toFile();
+        client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(cacheDir));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.httpClient().cache().delete();
+        server.shutdown();
+    }
+
+    @Test
+    public void reusesPooledConnectionAcrossRepositories() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            server.enqueue(page());
+        }
+
+        for (int i = 0; i < 6; i++) {
+            new StravaRepository(client).streamActivities("token", 1, 1, activity -> { }); // A new repository, as after a rotation
+        }
+
+        assertEquals(0, server.takeRequest().getSequenceNumber()); // First request opened the connection
+        for (int i = 1; i < 6; i++) {
+            assertEquals(i, server.takeRequest().getSequenceNumber()); // The rest reused it
+        }
+        assertEquals(1, client.httpClient().connectionPool().connectionCount());
+    }
+
+    @Test
+    public void revalidatesCachedPageWithEtag() throws Exception {
+        server.enqueue(page().setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "private, max-age=0, must-revalidate"));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Response<List<Activity>> first = fetch();
+        Response<List<Activity>> second = fetch();
+
+        assertEquals(1, first.body().size());
+        assertEquals(1, second.body().size()); // Served from the cache after the 304
+        server.takeRequest();
+        assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+        assertEquals(1, client.httpClient().cache().hitCount()); // Conditional hit: body not downloaded again
+    }
+
+    @Test
+    public void requestsAndUnzipsGzipBodies() throws Exception {
+        Buffer gzipped = new Buffer();
+        try (okio.BufferedSink sink = Okio.buffer(new GzipSink(gzipped))) {
+            sink.writeUtf8("[" + StravaFixtures.activityJson(3) + "]");
+        }
+        server.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip").setBody(gzipped));
+
+        Response<List<Activity>> response = fetch();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertEquals(4, response.body().get(0).getId());
+    }
+
+    @Test
+    public void sharedClientAllowsParallelPageSyncs() {
+        OkHttpClient httpClient = StravaClient.newHttpClient(null);
+        assertTrue(httpClient.dispatcher().getMaxRequestsPerHost() >= StravaClient.MAX_REQUESTS_PER_HOST);
+    }
+
+    private MockResponse page() {
+        return new MockResponse().setHeader("Content-Type", "application/json")
+                .setBody("[" + StravaFixtures.activityJson(0) + "]");
+    }
+
+    private Response<List<Activity>> fetch() throws Exception {
+        return client.api().getUserActivities("Bearer token", 1, 1).execute();
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.smartmarathonrunningapp;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// Synthetic Strava payloads for tests that run against a local mock server
+final class StravaFixtures {
+    static final long FIRST_START_EPOCH = 1_500_000_000L; // Start of the oldest synthetic activity
+    static final long START_SPACING_SECONDS = 6 * 3600; // One activity every six hours
+    static final long LOCAL_OFFSET_SECONDS = 3600; // Athlete's wall clock runs an hour ahead of UTC
+
+    private StravaFixtures() {
+    }
+
+    // Start time of the activity with the given ordinal (0 is the oldest)
+    static long startEpoch(int ordinal) {
+        return FIRST_START_EPOCH + ordinal * START_SPACING_SECONDS;
+    }
+
+    // JSON for one activity; its Strava id is ordinal + 1
+    static String activityJson(int ordinal) {
+        return "{\"id\":" + (ordinal + 1) + ","
+                + "\"name\":\"Run " + ordinal + "\","
+                + "\"distance\":" + (5000 + (ordinal % 37) * 250) + ".0,"
+                + "\"moving_time\":" + (1500 + (ordinal % 41) * 30) + ","
+                + "\"elapsed_time\":" + (1600 + (ordinal % 41) * 30) + ","
+                + "\"total_elevation_gain\":" + (ordinal % 23) + ".5,"
+                + "\"type\":\"Run\","
+                + "\"start_date\":\"" + Instant.ofEpochSecond(startEpoch(ordinal)) + "\","
+                + "\"start_date_local\":\"" + Instant.ofEpochSecond(startEpoch(ordinal) + LOCAL_OFFSET_SECONDS) + "\"}";
+    }
+
+    // Streams response (key_by_type=true) for a run of the given length at 1 Hz, with the value
+    // precision Strava sends: a steady ~5:40 /km with GPS, altitude and heart-rate noise
+    static String runStreamsJson(int seconds) {
+        Random random = new Random(42);
+        StringBuilder time = new StringBuilder();
+        StringBuilder distance = new StringBuilder();
+        StringBuilder latlng = new StringBuilder();
+        StringBuilder altitude = new StringBuilder();
+        StringBuilder velocity = new StringBuilder();
+        StringBuilder heartrate = new StringBuilder();
+        StringBuilder cadence = new StringBuilder();
+        StringBuilder moving = new StringBuilder();
+        StringBuilder grade = new StringBuilder();
+        double meters = 0;
+        double lat = 53.349805;
+        double lng = -6.26031;
+        double alt = 20;
+        double heading = 0;
+        for (int t = 0; t < seconds; t++) {
+            String comma = t > 0 ? "," : "";
+            double speed = 2.94 + random.nextGaussian() * 0.15;
+            double climb = Math.sin(t / 600.0) * 0.05 + random.nextGaussian() * 0.1;
+            meters += speed;
+            alt += climb;
+            heading += random.nextGaussian() * 0.05;
+            lat += Math.cos(heading) * speed / 111_320;
+            lng += Math.sin(heading) * speed / 67_000;
+            time.append(comma).append(t);
+            distance.append(comma).append(String.format(Locale.US, "%.1f", meters));
+            latlng.append(comma).append(String.format(Locale.US, "[%.6f,%.6f]", lat, lng));
+            altitude.append(comma).append(String.format(Locale.US, "%.1f", alt));
+            velocity.append(comma).append(String.format(Locale.US, "%.3f", speed));
+            heartrate.append(comma).append(150 + t * 20 / seconds + random.nextInt(3));
+            cadence.append(comma).append(86 + random.nextInt(3));
+            moving.append(comma).append(true);
+            grade.append(comma).append(String.format(Locale.US, "%.1f", climb / speed * 100));
+        }
+        return "{" + stream("time", time, seconds) + "," + stream("distance", distance, seconds) + ","
+                + stream("latlng", latlng, seconds) + "," + stream("altitude", altitude, seconds) + ","
+                + stream("velocity_smooth", velocity, seconds) + "," + stream("heartrate", heartrate, seconds) + ","
+                + stream("cadence", cadence, seconds) + "," + stream("moving", moving, seconds) + ","
+                + stream("grade_smooth", grade, seconds) + "}";
+    }
+
+    private static String stream(String key, StringBuilder data, int size) {
+        return "\"" + key + "\":{\"data\":[" + data + "],\"series_type\":\"distance\","
+                + "\"original_size\":" + size + ",\"resolution\":\"high\"}";
+    }
+
+    // Serves /api/v3/athlete/activities like Strava: newest first, up to "before" if given, or oldest
+    // first past "after"
+    static final class History extends Dispatcher {
+        final AtomicInteger size; // Can grow between syncs to simulate new runs
+        final AtomicInteger served = new AtomicInteger(); // Requests counted against the rate limit
+        final AtomicInteger maxInFlight = new AtomicInteger(); // Most requests the server was sitting on at once
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final long delayMillis;
+
+        History(int size, long delayMillis) {
+            this.size = new AtomicInteger(size);
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            HttpUrl url = request.getRequestUrl();
+            if (!url.encodedPath().equals("/api/v3/athlete/activities")) {
+                return new MockResponse().setResponseCode(404);
+            }
+            int concurrent = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(concurrent, Math::max);
+            try {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            int usage = served.incrementAndGet();
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setHeader("X-RateLimit-Limit", "600,30000") // A typical approved app's quota
+                    .setHeader("X-RateLimit-Usage", usage + "," + usage)
+                    .setBody(pageJson(url));
+        }
+
+        String pageJson(HttpUrl url) {
+            int total = size.get();
+            int page = Integer.parseInt(url.queryParameter("page"));
+            int perPage = Integer.parseInt(url.queryParameter("per_page"));
+            String after = url.queryParameter("after");
+            String before = url.queryParameter("before");
+
+            StringBuilder json = new StringBuilder("[");
+            int skip = (page - 1) * perPage;
+            if (after == null) {
+                int newest = total - 1;
+                if (before != null) { // Only runs started strictly before it
+                    long beforeEpoch = Long.parseLong(before);
+                    newest = beforeEpoch <= FIRST_START_EPOCH ? -1 : (int) Math.min(total - 1,
+                            (beforeEpoch - FIRST_START_EPOCH - 1) / START_SPACING_SECONDS);
+                }
+                for (int ordinal = newest - skip, n = 0; ordinal >= 0 && n < perPage; ordinal--, n++) {
+                    json.append(n > 0 ? "," : "").append(activityJson(ordinal));
+                }
+            } else {
+                long afterEpoch = Long.parseLong(after);
+                int first = afterEpoch < FIRST_START_EPOCH ? 0
+                        : (int) ((afterEpoch - FIRST_START_EPOCH) / START_SPACING_SECONDS) + 1;
+                for (int ordinal = first + skip, n = 0; ordinal < total && n < perPage; ordinal++, n++) {
+                    json.append(n > 0 ? "," : "").append(activityJson(ordinal));
+                }
+            }
+            return json.append(']').toString();
+        }
+    }
+}
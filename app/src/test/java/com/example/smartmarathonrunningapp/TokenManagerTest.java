@@ -0,0 +1,212 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Token refresh against a local mock server that only accepts the newest token
+public class TokenManagerTest {
+    private static final long NOW_SECONDS = 1_700_000_000L;
+
+    private final AtomicLong nowMillis = new AtomicLong(NOW_SECONDS * 1000);
+    private final StravaFixtures.History history = new StravaFixtures.History(1_000, 5);
+    private final AtomicInteger tokenRequests = new AtomicInteger();
+    private final AtomicInteger unauthorized = new AtomicInteger();
+    private volatile String validToken = "old"; // The only access token the server accepts
+    private volatile boolean refreshFails;
+
+    private MockWebServer server;
+    private StravaClient client;
+    private MemoryTokenStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                if (request.getPath().startsWith("/oauth/token")) {
+                    return tokenResponse(request);
+                }
+                if (!("Bearer " + validToken).equals(request.getHeader("Authorization"))) {
+                    unauthorized.incrementAndGet();
+                    return new MockResponse().setResponseCode(401);
+                }
+                return history.dispatch(request);
+            }
+        });
+        server.start();
+        client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+        store = new MemoryTokenStore();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRefresh() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS + 60)); // Inside the margin
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<String>> tokens = new ArrayList<>();
+        Callable<String> getToken = manager::getAccessToken;
+        for (int i = 0; i < 16; i++) {
+            tokens.add(pool.submit(getToken));
+        }
+        for (Future<String> token : tokens) {
+            assertEquals("new-1", token.get(10, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        assertEquals(1, tokenRequests.get());
+        assertEquals(1, manager.refreshCount());
+        assertEquals("new-1", store.token.getAccessToken()); // Persisted for the next launch
+        assertEquals("refresh-2", store.token.getRefreshToken());
+    }
+
+    @Test
+    public void validTokenIsNotRefreshed() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS + 3600));
+
+        assertEquals("old", manager.getAccessToken());
+        assertEquals(0, tokenRequests.get());
+    }
+
+    @Test
+    public void parallelSyncRecoversFromRevokedTokenWithOneRefresh() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS + 3600));
+        validToken = "new-1"; // Strava stopped accepting the token before its expires_at
+        CountDownLatch done = new CountDownLatch(1);
+        final Throwable[] error = new Throwable[1];
+        final int[] total = new int[1];
+
+        new StravaRepository(client).syncAllActivities(manager.getAccessToken(), 4, new ActivityHistorySync.Listener() {
+            @Override
+            public void onPage(int page, List<Activity> activities) {
+            }
+
+            @Override
+            public void onComplete(int totalActivities) {
+                total[0] = totalActivities;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error[0] = t;
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertNull(error[0]);
+        assertEquals(1_000, total[0]);
+        assertEquals(1, tokenRequests.get());
+        assertTrue(unauthorized.get() <= 4); // Only the first window saw the old token
+    }
+
+    @Test
+    public void expiringTokenIsSwappedBeforeRequestsGoOut() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS + 3600));
+        String captured = manager.getAccessToken(); // Held by a long sync
+        nowMillis.addAndGet(3600 * 1000L); // An hour later the captured token is about to expire
+        validToken = "new-1";
+
+        assertEquals(1_000, new StravaRepository(client).syncNewActivities(captured, new InMemoryActivityStore()));
+        assertEquals(0, unauthorized.get());
+        assertEquals(1, tokenRequests.get());
+    }
+
+    @Test
+    public void removedManagerIsNoLongerAskedToRefresh() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS + 3600));
+        client.removeTokenManager(manager);
+        validToken = "new-1";
+
+        try {
+            new StravaRepository(client).syncNewActivities("old", new InMemoryActivityStore());
+            fail("A 401 for a removed manager's token must not be retried");
+        } catch (IOException expected) {
+            // Rejected with the old token
+        }
+        assertEquals(0, tokenRequests.get());
+        assertEquals(1, unauthorized.get());
+    }
+
+    @Test
+    public void failedRefreshReachesEveryWaiterAndIsRetriedLater() throws Exception {
+        TokenManager manager = manager(new TokenResponse("old", "refresh-1", NOW_SECONDS));
+        refreshFails = true;
+        try {
+            manager.getAccessToken();
+            fail("Expected the refresh to fail");
+        } catch (IOException expected) {
+            // Expected
+        }
+
+        refreshFails = false;
+        assertEquals("new-2", manager.getAccessToken());
+        assertEquals(2, manager.refreshCount());
+    }
+
+    private TokenManager manager(TokenResponse token) {
+        store.token = token;
+        TokenManager manager = new TokenManager(client.api(), store, "client", "secret", nowMillis::get);
+        client.addTokenManager(manager);
+        return manager;
+    }
+
+    private MockResponse tokenResponse(RecordedRequest request) throws InterruptedException {
+        int refresh = tokenRequests.incrementAndGet();
+        Thread.sleep(100); // Slow enough for every caller to pile up behind it
+        if (refreshFails) {
+            return new MockResponse().setResponseCode(500);
+        }
+        assertTrue(request.getBody().readUtf8().contains("\"grant_type\":\"refresh_token\""));
+        validToken = "new-" + refresh;
+        return new MockResponse().setHeader("Content-Type", "application/json")
+                .setBody("{\"access_token\":\"" + validToken + "\",\"refresh_token\":\"refresh-" + (refresh + 1)
+                        + "\",\"expires_at\":" + (nowMillis.get() / 1000 + 6 * 3600) + "}");
+    }
+
+    private static class MemoryTokenStore implements TokenStore {
+        volatile TokenResponse token;
+
+        @Override
+        public TokenResponse load() {
+            return token;
+        }
+
+        @Override
+        public void save(TokenResponse token) {
+            this.token = token;
+        }
+
+        @Override
+        public void clear() {
+            token = null;
+        }
+    }
+}
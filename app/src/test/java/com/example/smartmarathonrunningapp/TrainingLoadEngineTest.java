@@ -0,0 +1,130 @@
+package com.example.smartmarathonrunningapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class TrainingLoadEngineTest {
+    private static final int START_DAY = (int) IsoDates.epochDay(2015, 1, 1);
+
+    @Test
+    public void oneHourAtThresholdScoresOneHundred() {
+        TrainingLoadEngine engine = new TrainingLoadEngine(4.0);
+        assertEquals(100, engine.activityLoad(14_400f, 3600, 0f), 1e-9);
+        assertTrue(engine.activityLoad(14_400f, 3600, 100f) > 100); // Climbing adds load
+    }
+
+    @Test
+    public void incrementalUpdatesMatchFullRebuild() {
+        ActivityColumns columns = randomHistory(2_000, 42);
+        TrainingLoadEngine incremental = new TrainingLoadEngine();
+        for (int row = 0; row < columns.size(); row++) {
+            incremental.addActivity(columns.localDay(row), columns.distance(row), columns.movingTime(row),
+                    columns.totalElevationGain(row));
+        }
+        TrainingLoadEngine rebuilt = new TrainingLoadEngine();
+        rebuilt.rebuild(columns);
+
+        assertSameSeries(rebuilt, incremental);
+    }
+
+    @Test
+    public void backfilledActivitiesMatchFullRebuild() {
+        ActivityColumns columns = randomHistory(1_000, 7);
+        TrainingLoadEngine backfilled = new TrainingLoadEngine();
+        // Newest first, so every add after the first lands on or before days already held
+        for (int row = columns.size() - 1; row >= 0; row--) {
+            backfilled.addActivity(columns.localDay(row), columns.distance(row), columns.movingTime(row),
+                    columns.totalElevationGain(row));
+        }
+        TrainingLoadEngine rebuilt = new TrainingLoadEngine();
+        rebuilt.rebuild(columns);
+
+        assertSameSeries(rebuilt, backfilled);
+    }
+
+    @Test
+    public void restDaysDecayAndFreshnessRecovers() {
+        TrainingLoadEngine engine = new TrainingLoadEngine();
+        for (int day = START_DAY; day < START_DAY + 60; day++) {
+            engine.addActivity(day, 12_000f, 3600, 50f);
+        }
+        int lastDay = START_DAY + 59;
+
+        assertTrue(engine.tsb(lastDay) < 0); // Training every day leaves fatigue above fitness
+        assertEquals(engine.atl(lastDay) * Math.exp(-10.0 / TrainingLoadEngine.ATL_DAYS), engine.atl(lastDay + 10), 1e-9);
+        assertTrue(engine.tsb(lastDay + 14) > 0); // Two weeks of taper
+    }
+
+    @Test
+    public void onlyRunsCountTowardsTrainingLoad() {
+        ActivityColumns runs = randomHistory(500, 3);
+        ActivityColumns mixed = new ActivityColumns();
+        byte[] others = {ActivityColumns.TYPE_RIDE, ActivityColumns.TYPE_SWIM, ActivityColumns.TYPE_WALK,
+                ActivityColumns.TYPE_OTHER};
+        mixed.append(0, 60_000f, 7200, 7300, 500f, (START_DAY - 30) * 86400L, START_DAY - 30, ActivityColumns.TYPE_RIDE);
+        for (int row = 0; row < runs.size(); row++) {
+            int day = runs.localDay(row);
+            mixed.append(runs.id(row), runs.distance(row), runs.movingTime(row), runs.movingTime(row) + 60,
+                    runs.totalElevationGain(row), day * 86400L + 7 * 3600, day,
+                    row % 5 == 0 ? ActivityColumns.TYPE_VIRTUAL_RUN : ActivityColumns.TYPE_RUN);
+            mixed.append(10_000 + row, 30_000f, 3600, 3700, 100f, day * 86400L + 17 * 3600, day, others[row % others.length]);
+        }
+        TrainingLoadEngine runsOnly = new TrainingLoadEngine();
+        runsOnly.rebuild(runs);
+        TrainingLoadEngine rebuilt = new TrainingLoadEngine();
+        rebuilt.rebuild(mixed);
+
+        assertSameSeries(runsOnly, rebuilt); // The ride a month before the first run does not even start the series
+
+        TrainingLoadEngine incremental = new TrainingLoadEngine();
+        incremental.addActivity(StravaJson.gson().fromJson("{\"id\":1,\"type\":\"Ride\",\"distance\":30000.0,"
+                + "\"moving_time\":3600,\"start_date\":\"2015-01-01T07:00:00Z\",\"start_date_local\":\"2015-01-01T07:00:00Z\"}", Activity.class));
+        assertTrue(incremental.isEmpty());
+        incremental.addActivity(StravaJson.gson().fromJson("{\"id\":2,\"type\":\"Run\",\"distance\":10000.0,"
+                + "\"moving_time\":2700,\"start_date\":\"2015-01-01T17:00:00Z\",\"start_date_local\":\"2015-01-01T17:00:00Z\"}", Activity.class));
+        assertEquals(START_DAY, incremental.firstDay());
+        assertEquals(incremental.activityLoad(10_000f, 2700, 0f), incremental.load(START_DAY), 1e-9);
+    }
+
+    // How fast this is, is TrainingLoadBenchmark's job; here the rebuilt engine must be reusable
+    @Test
+    public void rebuildingTenYearsAgainGivesTheSameSeries() {
+        ActivityColumns columns = randomHistory(3_650, 1); // About one activity a day for ten years
+        TrainingLoadEngine reused = new TrainingLoadEngine();
+        reused.rebuild(randomHistory(100, 2)); // Leaves state behind that the next rebuild must clear
+        reused.rebuild(columns);
+        TrainingLoadEngine fresh = new TrainingLoadEngine();
+        fresh.rebuild(columns);
+
+        assertEquals(columns.localDay(0), reused.firstDay());
+        assertTrue(reused.lastDay() - reused.firstDay() > 3_650); // Rest days included
+        assertSameSeries(fresh, reused);
+    }
+
+    private static ActivityColumns randomHistory(int activities, long seed) {
+        Random random = new Random(seed);
+        ActivityColumns columns = new ActivityColumns(activities);
+        int day = START_DAY;
+        for (int i = 0; i < activities; i++) {
+            day += random.nextInt(10) < 2 ? 0 : 1 + random.nextInt(2); // Doubles, rest days
+            int seconds = 1200 + random.nextInt(9000);
+            columns.append(i + 1, seconds * (2.5f + random.nextFloat() * 2), seconds, seconds + 60,
+                    random.nextFloat() * 300, day * 86400L + 7 * 3600, day, ActivityColumns.TYPE_RUN);
+        }
+        return columns;
+    }
+
+    private static void assertSameSeries(TrainingLoadEngine expected, TrainingLoadEngine actual) {
+        assertEquals(expected.firstDay(), actual.firstDay());
+        assertEquals(expected.lastDay(), actual.lastDay());
+        for (int day = expected.firstDay(); day <= expected.lastDay() + 5; day++) {
+            assertEquals(expected.load(day), actual.load(day), 1e-6);
+            assertEquals(expected.atl(day), actual.atl(day), 1e-6);
+            assertEquals(expected.ctl(day), actual.ctl(day), 1e-6);
+            assertEquals(expected.tsb(day), actual.tsb(day), 1e-6);
+        }
+    }
+}
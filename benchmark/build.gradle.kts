@@ -0,0 +1,95 @@
+// Plain-JVM JMH benchmarks for the app's pure-Java hot paths and its networking against a local
+// mock server: ./gradlew :benchmark:jmh
+// Results land in benchmark/build/results/jmh/results.json.
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// Compile the app's classes straight from its source tree, so a benchmark always measures the code
+// that ships. The networking ones only touch Android through a Context nobody passes here.
+val appSources = listOf(
+    "Activity",
+    "ActivityColumns",
+    "ActivityFormatter",
+    "ActivityHistorySync",
+    "ActivityJsonStream",
+    "ActivityPageCache",
+    "ActivityStore",
+    "ActivityStreamStore",
+    "ActivityStreams",
+    "ActivityStreamsFile",
+    "ActivityTimeIndex",
+    "ActivityTypeAdapter",
+    "CircuitBreaker",
+    "CoachSync",
+    "IsoDates",
+    "LatencyHistogram",
+    "Metrics",
+    "NetworkMetricsListener",
+    "RateLimitScheduler",
+    "RequestCoalescer",
+    "RequestScope",
+    "ResilientCalls",
+    "SharedPreferencesTokenStore",
+    "StartupTrace",
+    "StravaApiService",
+    "StravaAuthException",
+    "StravaClient",
+    "StravaJson",
+    "StravaRepository",
+    "TimedConverterFactory",
+    "TokenManager",
+    "TokenResponse",
+    "TokenResponseTypeAdapter",
+    "TokenStore",
+    "TrainingLoadEngine"
+)
+
+// Test helpers the network benchmarks share with the unit tests: the synthetic Strava history and
+// the in-memory store
+val testSources = listOf(
+    "InMemoryActivityStore",
+    "StravaFixtures"
+)
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(appSources.map { "com/example/smartmarathonrunningapp/$it.java" })
+            include("com/example/smartmarathonrunningapp/BuildConfig.java") // The stand-in in src/main/java
+        }
+    }
+    named("jmh") {
+        java {
+            srcDir("../app/src/test/java")
+            include("com/example/smartmarathonrunningapp/*Benchmark.java")
+            include("com/example/smartmarathonrunningapp/BenchmarkFixtures.java")
+            include(testSources.map { "com/example/smartmarathonrunningapp/$it.java" })
+        }
+        resources.srcDir("../app/src/test/resources") // The recorded Strava fixtures the unit tests use
+    }
+}
+
+dependencies {
+    implementation("com.google.code.gson:gson:2.10")
+    implementation("com.squareup.retrofit2:retrofit:2.9.0")
+    implementation("com.squareup.retrofit2:converter-gson:2.9.0")
+    implementation("com.google.android:android:4.1.1.4") // Platform stubs for the Context-taking classes
+    implementation("androidx.annotation:annotation:1.6.0")
+    jmhImplementation("com.squareup.okhttp3:mockwebserver:3.14.9")
+}
+
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc") // Reports bytes allocated per operation next to the time
+    resultFormat.set("JSON")
+}
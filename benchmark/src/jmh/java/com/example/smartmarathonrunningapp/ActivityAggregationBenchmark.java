@@ -0,0 +1,58 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Total run distance and moving time over a 10k-activity history: a loop over List<Activity>
+// against the primitive ActivityColumns, plus a full training-load rebuild
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActivityAggregationBenchmark {
+    private static final int HISTORY_SIZE = 10_000;
+
+    private List<Activity> activities;
+    private ActivityColumns columns;
+    private final TrainingLoadEngine engine = new TrainingLoadEngine();
+
+    @Setup
+    public void loadHistory() throws IOException {
+        activities = BenchmarkFixtures.history(HISTORY_SIZE);
+        columns = new ActivityColumns(HISTORY_SIZE);
+        for (Activity activity : activities) {
+            columns.append(activity);
+        }
+    }
+
+    @Benchmark
+    public double objectList() {
+        double distance = 0;
+        long movingTime = 0;
+        for (Activity activity : activities) {
+            if ("Run".equals(activity.getType())) {
+                distance += activity.getDistance();
+                movingTime += activity.getMoving_time();
+            }
+        }
+        return distance + movingTime;
+    }
+
+    @Benchmark
+    public double columns() {
+        return columns.totalDistance(ActivityColumns.TYPE_RUN) + columns.totalMovingTime(ActivityColumns.TYPE_RUN);
+    }
+
+    @Benchmark
+    public double trainingLoadRebuild() {
+        engine.rebuild(columns);
+        return engine.ctl(engine.lastDay());
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// Distance and time text for one activity: the String.format versions of formatDistance/formatTime
+// against ActivityFormatter writing into its reusable buffer
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ActivityFormattingBenchmark {
+    private final ActivityFormatter formatter = new ActivityFormatter(Locale.US);
+    private int row; // Varies the input so no result can be constant-folded
+
+    @Benchmark
+    public String stringFormat() {
+        float meters = nextMeters();
+        int seconds = nextSeconds();
+        return formatDistance(meters) + formatTime(seconds);
+    }
+
+    @Benchmark
+    public int activityFormatter() {
+        float meters = nextMeters();
+        int seconds = nextSeconds();
+        return formatter.clear().appendDistance(meters).appendDuration(seconds).length();
+    }
+
+    private float nextMeters() {
+        return 3000 + (row++ & 0x7fff);
+    }
+
+    private int nextSeconds() {
+        return 900 + (row & 0x3fff);
+    }
+
+    // MainActivity's formatting before ActivityFormatter
+    private static String formatDistance(float meters) {
+        return String.format(Locale.US, "%.2f km", meters / 1000);
+    }
+
+    private static String formatTime(int seconds) {
+        int minutes = seconds / 60;
+        int hours = minutes / 60;
+        minutes %= 60;
+        seconds %= 60;
+        return hours > 0 ? String.format(Locale.US, "%d hr %d min", hours, minutes)
+                : String.format(Locale.US, "%d min %d sec", minutes, seconds);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.smartmarathonrunningapp;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// One recorded 200-activity page into Activity objects: reflective Gson as the app first did it,
+// the shared Gson with the hand-written adapter, and the streaming parser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ActivityParsingBenchmark {
+    private final Type listType = new TypeToken<List<Activity>>() {}.getType();
+    private final Gson reflectiveGson = new Gson();
+    private String page;
+
+    @Setup
+    public void loadFixture() throws IOException {
+        page = BenchmarkFixtures.read(BenchmarkFixtures.PAGE_200);
+    }
+
+    @Benchmark
+    public List<Activity> reflectiveGson() {
+        return reflectiveGson.fromJson(new StringReader(page), listType);
+    }
+
+    @Benchmark
+    public List<Activity> typeAdapterGson() {
+        return StravaJson.gson().fromJson(new StringReader(page), listType);
+    }
+
+    @Benchmark
+    public int streamingParser(Blackhole blackhole) throws IOException {
+        return ActivityJsonStream.forEach(new StringReader(page), blackhole::consume);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Recorded Strava payloads shared by the benchmarks; the same files the unit tests read
+final class BenchmarkFixtures {
+    static final String PAGE_200 = "/fixtures/activities_page_200.json"; // One full page of SummaryActivity
+
+    private BenchmarkFixtures() {
+    }
+
+    static String read(String resource) throws IOException {
+        try (InputStream in = BenchmarkFixtures.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + resource);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int read; (read = in.read(chunk)) != -1; ) {
+                out.write(chunk, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // A history of the given size made of the recorded page repeated, with unique ids
+    static List<Activity> history(int size) throws IOException {
+        String page = read(PAGE_200);
+        List<Activity> activities = new ArrayList<>(size);
+        while (activities.size() < size) {
+            ActivityJsonStream.forEach(new StringReader(page), activity -> {
+                if (activities.size() < size) {
+                    activity.setId(activities.size() + 1);
+                    activities.add(activity);
+                }
+            });
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// A 50-athlete group synced into empty stores against a local mock server that takes 40 ms per
+// page, one page each. Time should fall close to linearly with the pages in flight: over 3x faster
+// at 4 than at 1, and over 5x at 8.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CoachSyncBenchmark {
+    private static final int ATHLETES = 50;
+
+    @Param({"1", "4", "8"})
+    public int concurrency;
+
+    private MockWebServer server;
+    private StravaRepository repository;
+    private final Map<String, StravaFixtures.History> histories = new ConcurrentHashMap<>(); // By access token
+    private List<CoachSync.Athlete> group;
+
+    @Setup
+    public void startServer() throws IOException {
+        for (int i = 0; i < ATHLETES; i++) {
+            histories.put("athlete-" + i, new StravaFixtures.History(100, 40));
+        }
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                String token = request.getHeader("Authorization").substring("Bearer ".length());
+                return histories.get(token).dispatch(request);
+            }
+        });
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+    }
+
+    @TearDown
+    public void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    // Empty stores for every sync, so each one fetches the whole group again
+    @Setup(Level.Invocation)
+    public void freshGroup() {
+        group = new ArrayList<>();
+        for (String token : histories.keySet()) {
+            MemoryTokenStore tokens = new MemoryTokenStore();
+            tokens.save(new TokenResponse(token, "refresh-" + token, Long.MAX_VALUE / 1000));
+            TokenManager manager = new TokenManager(null, tokens, "client", "secret", System::currentTimeMillis);
+            group.add(new CoachSync.Athlete(token, manager, new InMemoryActivityStore()));
+        }
+    }
+
+    @Benchmark
+    public int syncAll() throws IOException {
+        CoachSync.Result result = new CoachSync(repository, concurrency).syncAll(group);
+        if (!result.failures().isEmpty()) {
+            throw new IOException("Sync failed for " + result.failures().keySet());
+        }
+        return result.totalSaved();
+    }
+
+    private static class MemoryTokenStore implements TokenStore {
+        private volatile TokenResponse token;
+
+        @Override
+        public TokenResponse load() {
+            return token;
+        }
+
+        @Override
+        public void save(TokenResponse token) {
+            this.token = token;
+        }
+
+        @Override
+        public void clear() {
+            token = null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+// Time to data for one page against a local mock server where every tenth request stalls for
+// 1.5 s, with and without a hedge after 150 ms. Read the p0.99 line: plain should sit at the
+// stall, hedged under half of it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HedgingBenchmark {
+    private static final long SPIKE_MILLIS = 1_500;
+    private static final long NORMAL_MILLIS = 20;
+
+    @Param({"false", "true"})
+    public boolean hedged;
+
+    private MockWebServer server;
+    private StravaRepository repository;
+
+    @Setup
+    public void startServer() throws IOException {
+        final StravaFixtures.History history = new StravaFixtures.History(1_000, 0);
+        final AtomicInteger requests = new AtomicInteger();
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Thread.sleep(requests.incrementAndGet() % 10 == 0 ? SPIKE_MILLIS : NORMAL_MILLIS);
+                return new MockResponse()
+                        .setHeader("Content-Type", "application/json")
+                        .setHeader("X-RateLimit-Limit", "600,30000")
+                        .setHeader("X-RateLimit-Usage", "1,1") // Always budget to spare for a hedge
+                        .setBody(history.pageJson(request.getRequestUrl()));
+            }
+        });
+        server.start();
+        StravaClient client = StravaClient.create(server.url("/").toString(), StravaClient.newHttpClient(null));
+        repository = new StravaRepository(client.api(), client.scheduler(), null, new ResilientCalls(client.scheduler(),
+                new CircuitBreaker(), hedged ? 150 : ResilientCalls.NO_HEDGING, 1, 0, 0, new Random(1)));
+    }
+
+    @TearDown
+    public void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public List<Activity> fetchPage() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Object[] outcome = new Object[1];
+        repository.fetchActivities("token", 1, 200, new Callback<List<Activity>>() {
+            @Override
+            public void onResponse(Call<List<Activity>> call, Response<List<Activity>> response) {
+                outcome[0] = response.body();
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(Call<List<Activity>> call, Throwable t) {
+                outcome[0] = t;
+                done.countDown();
+            }
+        });
+        done.await();
+        if (!(outcome[0] instanceof List)) {
+            throw new IOException("Page fetch failed", (Throwable) outcome[0]);
+        }
+        @SuppressWarnings("unchecked")
+        List<Activity> page = (List<Activity>) outcome[0];
+        return page;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.smartmarathonrunningapp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockWebServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// A full 10k-activity history sync against a local mock server that takes 40 ms per page, one page
+// at a time and with four in flight. Four should at least halve the time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HistorySyncBenchmark {
+    private static final int HISTORY_SIZE = 10_000; // 50 full pages of 200
+
+    @Param({"1", "4"})
+    public int pagesInFlight;
+
+    private MockWebServer server;
+    private StravaRepository repository;
+
+    @Setup
+    public void startServer() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new StravaFixtures.History(HISTORY_SIZE, 40));
+        server.start();
+        repository = new StravaRepository(server.url("/").toString());
+    }
+
+    @TearDown
+    public void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public int syncAll() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final int[] total = {-1};
+        repository.syncAllActivities("token", pagesInFlight, new ActivityHistorySync.Listener() {
+            @Override
+            public void onPage(int page, List<Activity> activities) {
+            }
+
+            @Override
+            public void onComplete(int totalActivities) {
+                total[0] = totalActivities;
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                done.countDown();
+            }
+        });
+        done.await();
+        if (total[0] != HISTORY_SIZE) {
+            throw new IllegalStateException("Sync did not complete");
+        }
+        return total[0];
+    }
+}
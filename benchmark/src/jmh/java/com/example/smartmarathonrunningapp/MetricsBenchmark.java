@@ -0,0 +1,23 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// What the latency instrumentation adds to a timed path: two clock reads and a histogram record.
+// It should stay under 1% of ActivityParsingBenchmark.streamingParser, the page parse it times.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    public void timedRecord() {
+        histogram.recordSince(System.nanoTime());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.smartmarathonrunningapp;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// A full training-load rebuild over ten years of near-daily runs, which should stay in single-digit
+// milliseconds. ActivityAggregationBenchmark's history repeats one page, so it spans only a few months.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TrainingLoadBenchmark {
+    private static final int START_DAY = (int) IsoDates.epochDay(2015, 1, 1);
+
+    private final TrainingLoadEngine engine = new TrainingLoadEngine();
+    private ActivityColumns columns;
+
+    @Setup
+    public void tenYears() {
+        Random random = new Random(1);
+        columns = new ActivityColumns(3_650);
+        int day = START_DAY;
+        for (int i = 0; i < 3_650; i++) {
+            day += random.nextInt(10) < 2 ? 0 : 1 + random.nextInt(2); // Doubles, rest days
+            int seconds = 1200 + random.nextInt(9000);
+            columns.append(i + 1, seconds * (2.5f + random.nextFloat() * 2), seconds, seconds + 60,
+                    random.nextFloat() * 300, day * 86400L + 7 * 3600, day, ActivityColumns.TYPE_RUN);
+        }
+    }
+
+    @Benchmark
+    public double rebuild() {
+        engine.rebuild(columns);
+        return engine.ctl(engine.lastDay());
+    }
+}
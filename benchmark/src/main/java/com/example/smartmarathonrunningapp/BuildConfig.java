@@ -0,0 +1,10 @@
+package com.example.smartmarathonrunningapp;
+
+// Stands in for the BuildConfig the Android build generates, so the app sources compile here. The
+// benchmarks never talk to the real Strava, so they need no secret.
+public final class BuildConfig {
+    public static final String STRAVA_CLIENT_SECRET = "";
+
+    private BuildConfig() {
+    }
+}
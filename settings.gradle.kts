@@ -15,4 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Smart Marathon Running App"
 include(":app")
+include(":benchmark")
  
\ No newline at end of file